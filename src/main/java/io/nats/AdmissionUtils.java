@@ -0,0 +1,503 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for server processes. When limits are set, a runner gets a permit before starting
+ * its process and gives it back when it is shut down. Starts wait while the limits would be exceeded, so an
+ * oversubscribed machine queues servers instead of running out of memory. The limits are the number of live
+ * servers and their total estimated memory, a server's estimate being {@value #DEFAULT_SERVER_MEMORY} bytes plus
+ * its JetStream max_memory_store, typed or from its jetstream block, or {@value #DEFAULT_JS_MEMORY} bytes
+ * when JetStream has no limit. A server is always admitted when none are running, so a single server larger
+ * than the budget still runs. Servers that must run together, like a cluster, are admitted all at once,
+ * and fail to start right away if they could never all be admitted at once.
+ * A runner holds its permit until it is shut down, even if its process exits on its own.
+ * <p>
+ * By default the limits apply to this JVM. With an admission file, JVMs sharing the file share the limits,
+ * each JVM's usage being recorded under a file lock and refreshed while it has servers running.
+ * The usage of a JVM that stops refreshing, for instance because it was killed, expires.
+ */
+public abstract class AdmissionUtils {
+    public static final long DEFAULT_SERVER_MEMORY = 64L * 1024 * 1024;
+    public static final long DEFAULT_JS_MEMORY = 256L * 1024 * 1024;
+    public static final long DEFAULT_ADMISSION_TIMEOUT = 300_000;
+    public static final long ADMISSION_POLL_INTERVAL = 50;
+    public static final long USAGE_TTL = 30_000;
+
+    private static final Object LOCK = new Object();
+    private static final String JVM_ID = UUID.randomUUID().toString().replace("-", "");
+
+    // guarded by LOCK
+    private static int MaxServers = 0;
+    private static long MemoryBudget = 0;
+    private static long AdmissionTimeout = DEFAULT_ADMISSION_TIMEOUT;
+    private static Path AdmissionFile = null;
+    private static int LiveServers = 0;
+    private static long UsedMemory = 0;
+    private static ScheduledFuture<?> Refresher;
+
+    private AdmissionUtils() {}
+
+    /**
+     * A permit for one server process. Releasing more than once does nothing.
+     */
+    public static final class Permit {
+        private final long memory;
+        private final boolean counted;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long memory, boolean counted) {
+            this.memory = memory;
+            this.counted = counted;
+        }
+
+        public long getMemory() {
+            return memory;
+        }
+
+        public void release() {
+            if (counted && released.compareAndSet(false, true)) {
+                synchronized (LOCK) {
+                    LiveServers--;
+                    UsedMemory -= memory;
+                    if (LiveServers == 0 && Refresher != null) {
+                        Refresher.cancel(false);
+                        Refresher = null;
+                    }
+                    try {
+                        publishUsage();
+                    }
+                    catch (IOException e) {
+                        // the usage expires on its own
+                    }
+                    LOCK.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a permit, waiting (blocking) until there is capacity or the admission timeout passes
+     * @param memory the estimated memory of the server
+     * @return the permit
+     * @throws IOException if the admission file could not be used, or there was no capacity in time
+     * @throws InterruptedException if the wait was interrupted
+     */
+    public static Permit acquire(long memory) throws IOException, InterruptedException {
+        synchronized (LOCK) {
+            long deadline = System.currentTimeMillis() + AdmissionTimeout;
+            while (true) {
+                Permit permit = tryAcquire(memory);
+                if (permit != null) {
+                    return permit;
+                }
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new IOException("No capacity to start a server within " + AdmissionTimeout + "ms. " + describe());
+                }
+                // released permits in this JVM notify, releases in other JVMs are only seen by polling
+                LOCK.wait(Math.min(wait, ADMISSION_POLL_INTERVAL));
+            }
+        }
+    }
+
+    /**
+     * Get permits for servers that must run at once, like a cluster, waiting (blocking) until there is
+     * capacity for all of them. They are admitted together or not at all, so two groups starting at the same
+     * time can't each take part of the capacity and then wait on each other.
+     * @param memories the estimated memory of each server
+     * @param timeoutMillis how long to wait for capacity
+     * @return a permit for each server, in order
+     * @throws IOException if the admission file could not be used, or there was no capacity in time
+     * @throws InterruptedException if the wait was interrupted
+     */
+    static List<Permit> acquireAll(List<Long> memories, long timeoutMillis) throws IOException, InterruptedException {
+        checkGroup(memories);
+        synchronized (LOCK) {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (true) {
+                List<Permit> permits = tryAcquireAll(memories);
+                if (permits != null) {
+                    return permits;
+                }
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new IOException("No capacity to start " + memories.size() + " servers within " + timeoutMillis + "ms. " + describe());
+                }
+                LOCK.wait(Math.min(wait, ADMISSION_POLL_INTERVAL));
+            }
+        }
+    }
+
+    /**
+     * Get a permit without blocking the calling thread
+     * @param memory the estimated memory of the server
+     * @return a future that completes with the permit, or exceptionally if there was no capacity in time
+     */
+    public static CompletableFuture<Permit> acquireAsync(long memory) {
+        return acquireAsync(memory, getAdmissionTimeout());
+    }
+
+    /**
+     * Get a permit without blocking the calling thread
+     * @param memory the estimated memory of the server
+     * @param timeoutMillis how long to wait for capacity
+     * @return a future that completes with the permit, or exceptionally if there was no capacity in time
+     */
+    public static CompletableFuture<Permit> acquireAsync(long memory, long timeoutMillis) {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        Permit[] permit = new Permit[1];
+        RunnerScheduler.pollUntil(() -> {
+            try {
+                permit[0] = tryAcquire(memory);
+                return permit[0] != null;
+            }
+            catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, ADMISSION_POLL_INTERVAL, timeoutMillis, "capacity to start a server")
+            .whenComplete((v, t) -> {
+                if (t == null) {
+                    future.complete(permit[0]);
+                }
+                else {
+                    future.completeExceptionally(t);
+                }
+            });
+        return future;
+    }
+
+    /**
+     * Get a permit if there is capacity now
+     * @param memory the estimated memory of the server
+     * @return the permit or null if there is no capacity
+     * @throws IOException if the admission file could not be used
+     */
+    public static Permit tryAcquire(long memory) throws IOException {
+        List<Permit> permits = tryAcquireAll(Collections.singletonList(memory));
+        return permits == null ? null : permits.get(0);
+    }
+
+    /**
+     * Get permits for all the servers if there is capacity for all of them now
+     * @param memories the estimated memory of each server
+     * @return a permit for each server, in order, or null if there is no capacity
+     * @throws IOException if the admission file could not be used
+     */
+    static List<Permit> tryAcquireAll(List<Long> memories) throws IOException {
+        synchronized (LOCK) {
+            if (!isEnabled()) {
+                List<Permit> permits = new ArrayList<>();
+                for (long memory : memories) {
+                    permits.add(new Permit(memory, false));
+                }
+                return permits;
+            }
+            long memory = 0;
+            for (long m : memories) {
+                memory += m;
+            }
+            if (AdmissionFile == null) {
+                if (!fits(LiveServers, UsedMemory, memories.size(), memory)) {
+                    return null;
+                }
+                return admit(memories);
+            }
+            try (FileChannel channel = openAdmissionFile()) {
+                FileLock lock = channel.lock();
+                try {
+                    Map<String, long[]> usage = read(channel, System.currentTimeMillis());
+                    usage.remove(JVM_ID);
+                    long servers = LiveServers;
+                    long used = UsedMemory;
+                    for (long[] u : usage.values()) {
+                        servers += u[0];
+                        used += u[1];
+                    }
+                    if (!fits(servers, used, memories.size(), memory)) {
+                        return null;
+                    }
+                    List<Permit> permits = admit(memories);
+                    usage.put(JVM_ID, new long[] {LiveServers, UsedMemory, System.currentTimeMillis() + USAGE_TTL});
+                    write(channel, usage);
+                    return permits;
+                }
+                finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that servers that must all run at once, like a cluster, can ever be admitted together.
+     * Otherwise the first ones would hold their permits while the rest wait for them until the timeout.
+     * @param memories the estimated memory of each server
+     * @throws IllegalStateException if the servers exceed the limits
+     */
+    static void checkGroup(List<Long> memories) {
+        synchronized (LOCK) {
+            if (memories.size() < 2) {
+                return; // a single server is always admitted eventually
+            }
+            if (MaxServers > 0 && memories.size() > MaxServers) {
+                throw new IllegalStateException(memories.size() + " servers must run at once, but admission control allows "
+                    + MaxServers + ".");
+            }
+            long total = 0;
+            for (long memory : memories) {
+                total += memory;
+            }
+            if (MemoryBudget > 0 && total > MemoryBudget) {
+                throw new IllegalStateException(memories.size() + " servers must run at once, but their estimated memory "
+                    + total + " exceeds the memory budget " + MemoryBudget + ".");
+            }
+        }
+    }
+
+    private static boolean fits(long servers, long used, int count, long memory) {
+        if (servers == 0) {
+            return true;
+        }
+        return (MaxServers <= 0 || servers + count <= MaxServers) && (MemoryBudget <= 0 || used + memory <= MemoryBudget);
+    }
+
+    private static List<Permit> admit(List<Long> memories) {
+        List<Permit> permits = new ArrayList<>();
+        for (long memory : memories) {
+            LiveServers++;
+            UsedMemory += memory;
+            permits.add(new Permit(memory, true));
+        }
+        if (AdmissionFile != null && Refresher == null) {
+            long every = USAGE_TTL / 3;
+            Refresher = RunnerScheduler.get().scheduleWithFixedDelay(() -> {
+                try {
+                    publishUsage();
+                }
+                catch (IOException e) {
+                    // tried again next time
+                }
+            }, every, every, TimeUnit.MILLISECONDS);
+        }
+        return permits;
+    }
+
+    /**
+     * Record this JVM's usage in the admission file, or remove it if there is none
+     */
+    private static void publishUsage() throws IOException {
+        synchronized (LOCK) {
+            if (AdmissionFile == null) {
+                return;
+            }
+            try (FileChannel channel = openAdmissionFile()) {
+                FileLock lock = channel.lock();
+                try {
+                    Map<String, long[]> usage = read(channel, System.currentTimeMillis());
+                    if (LiveServers > 0) {
+                        usage.put(JVM_ID, new long[] {LiveServers, UsedMemory, System.currentTimeMillis() + USAGE_TTL});
+                    }
+                    else {
+                        usage.remove(JVM_ID);
+                    }
+                    write(channel, usage);
+                }
+                finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private static FileChannel openAdmissionFile() throws IOException {
+        return FileChannel.open(AdmissionFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static Map<String, long[]> read(FileChannel channel, long now) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int)channel.size());
+        channel.read(buffer, 0);
+        Map<String, long[]> usage = new HashMap<>();
+        for (String line : new String(buffer.array(), StandardCharsets.US_ASCII).split("\n")) {
+            String[] split = line.trim().split(" ");
+            if (split.length == 4) {
+                try {
+                    long expires = Long.parseLong(split[3]);
+                    if (expires > now) {
+                        usage.put(split[0], new long[] {Long.parseLong(split[1]), Long.parseLong(split[2]), expires});
+                    }
+                }
+                catch (NumberFormatException ignore) {
+                    // a garbled line is treated as expired usage
+                }
+            }
+        }
+        return usage;
+    }
+
+    private static void write(FileChannel channel, Map<String, long[]> usage) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, long[]> entry : usage.entrySet()) {
+            long[] u = entry.getValue();
+            sb.append(entry.getKey()).append(' ').append(u[0]).append(' ').append(u[1]).append(' ').append(u[2]).append('\n');
+        }
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.US_ASCII)), 0);
+        channel.force(false);
+    }
+
+    /**
+     * Estimate the memory a server will use
+     * @param jsConfig the server's JetStream config or null if it does not have JetStream
+     * @return the estimate in bytes
+     */
+    static long estimateMemory(JsConfig jsConfig) {
+        if (jsConfig == null) {
+            return DEFAULT_SERVER_MEMORY;
+        }
+        // typed or from the config's jetstream block, where it may be written with a unit or under an alias
+        String maxMemory = jsConfig.getOption(JsConfig.MAX_MEMORY_STORE);
+        long bytes = maxMemory == null ? -1 : JsConfig.parseSize(maxMemory);
+        return DEFAULT_SERVER_MEMORY + (bytes > 0 ? bytes : DEFAULT_JS_MEMORY);
+    }
+
+    private static String describe() {
+        return "Live servers in this JVM: " + LiveServers + ", max servers: " + MaxServers
+            + ", used memory: " + UsedMemory + ", memory budget: " + MemoryBudget + ".";
+    }
+
+    // ====================================================================================================
+    // Settings
+    // ====================================================================================================
+    public static boolean isEnabled() {
+        synchronized (LOCK) {
+            return MaxServers > 0 || MemoryBudget > 0;
+        }
+    }
+
+    /**
+     * Set the limits from the host: twice as many servers as cores, and half of the physical memory
+     * if the JVM can tell what that is, otherwise no memory budget
+     */
+    public static void setHostLimits() {
+        long memory = 0;
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            memory = ((com.sun.management.OperatingSystemMXBean)os).getTotalPhysicalMemorySize() / 2;
+        }
+        synchronized (LOCK) {
+            MaxServers = Runtime.getRuntime().availableProcessors() * 2;
+            MemoryBudget = memory;
+            LOCK.notifyAll();
+        }
+    }
+
+    public static int getMaxServers() {
+        synchronized (LOCK) {
+            return MaxServers;
+        }
+    }
+
+    /**
+     * Set the maximum number of live servers
+     * @param maxServers the maximum, 0 for no limit
+     */
+    public static void setMaxServers(int maxServers) {
+        synchronized (LOCK) {
+            MaxServers = Math.max(0, maxServers);
+            LOCK.notifyAll();
+        }
+    }
+
+    public static long getMemoryBudget() {
+        synchronized (LOCK) {
+            return MemoryBudget;
+        }
+    }
+
+    /**
+     * Set the total estimated memory of live servers
+     * @param memoryBudget the budget in bytes, 0 for no limit
+     */
+    public static void setMemoryBudget(long memoryBudget) {
+        synchronized (LOCK) {
+            MemoryBudget = Math.max(0, memoryBudget);
+            LOCK.notifyAll();
+        }
+    }
+
+    public static long getAdmissionTimeout() {
+        synchronized (LOCK) {
+            return AdmissionTimeout;
+        }
+    }
+
+    /**
+     * Set how long a start waits for capacity
+     * @param admissionTimeout the timeout in milliseconds
+     */
+    public static void setAdmissionTimeout(long admissionTimeout) {
+        synchronized (LOCK) {
+            AdmissionTimeout = admissionTimeout;
+        }
+    }
+
+    public static Path getAdmissionFile() {
+        synchronized (LOCK) {
+            return AdmissionFile;
+        }
+    }
+
+    /**
+     * Set the file JVMs share the limits through. Every JVM that should share must use the same file and limits.
+     * @param admissionFile the file, null to apply the limits to this JVM only
+     */
+    public static void setAdmissionFile(Path admissionFile) {
+        synchronized (LOCK) {
+            AdmissionFile = admissionFile;
+        }
+    }
+
+    public static int getLiveServers() {
+        synchronized (LOCK) {
+            return LiveServers;
+        }
+    }
+
+    public static long getUsedMemory() {
+        synchronized (LOCK) {
+            return UsedMemory;
+        }
+    }
+}
@@ -19,6 +19,9 @@ public class ClusterDefaults {
     private int listenStart;
     private boolean hasMonitor;
     private int monitorStart;
+    private boolean dynamicPorts;
+    private int seedCount;
+    private boolean routesIncludeFile;
 
     private int count;
     private String clusterName;
@@ -32,6 +35,9 @@ public class ClusterDefaults {
             ", l=" + listenStart +
             ", mB=" + hasMonitor +
             ", mS=" + monitorStart +
+            ", d=" + dynamicPorts +
+            ", sc=" + seedCount +
+            ", ri=" + routesIncludeFile +
             ", c=" + count +
             ", n='" + clusterName + '\'' +
             ", s='" + serverNamePrefix + '\'' +
@@ -44,6 +50,9 @@ public class ClusterDefaults {
         listenStart = 4230;
         hasMonitor = false;
         monitorStart = 4280;
+        dynamicPorts = false;
+        seedCount = 0;
+        routesIncludeFile = false;
 
         count = 3;
         clusterName = "cluster";
@@ -81,6 +90,38 @@ public class ClusterDefaults {
         return this;
     }
 
+    /**
+     * Allocate the client, route and monitor ports with {@link NatsRunnerUtils#nextPort()}
+     * instead of counting up from the start ports, so clusters running at the same time do not collide.
+     * @param dynamicPorts whether to allocate ports dynamically
+     * @return the ClusterDefaults
+     */
+    public ClusterDefaults dynamicPorts(boolean dynamicPorts) {
+        this.dynamicPorts = dynamicPorts;
+        return this;
+    }
+
+    /**
+     * Route every node only to the first seedCount nodes and let the servers gossip the rest of the mesh,
+     * instead of routing every node to every other node. Less than 1 means full mesh.
+     * @param seedCount the number of seed nodes
+     * @return the ClusterDefaults
+     */
+    public ClusterDefaults seedCount(int seedCount) {
+        this.seedCount = Math.max(seedCount, 0);
+        return this;
+    }
+
+    /**
+     * Write the routes once to a shared file that every node includes, instead of listing them in each node's config
+     * @param routesIncludeFile whether to use a shared routes include file
+     * @return the ClusterDefaults
+     */
+    public ClusterDefaults routesIncludeFile(boolean routesIncludeFile) {
+        this.routesIncludeFile = routesIncludeFile;
+        return this;
+    }
+
     public ClusterDefaults count(int count) {
         this.count = count;
         return this;
@@ -116,6 +157,18 @@ public class ClusterDefaults {
         return monitorStart;
     }
 
+    public boolean hasDynamicPorts() {
+        return dynamicPorts;
+    }
+
+    public int getSeedCount() {
+        return seedCount;
+    }
+
+    public boolean hasRoutesIncludeFile() {
+        return routesIncludeFile;
+    }
+
     public int getCount() {
         return count;
     }
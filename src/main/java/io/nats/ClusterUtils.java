@@ -13,14 +13,27 @@
 
 package io.nats;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public abstract class ClusterUtils {
     public static final ClusterDefaults DEFAULT_CLUSTER_DEFAULTS = new ClusterDefaults();
 
+    private static final String ROUTES_FILE_PREFIX = NatsRunnerUtils.CONF_FILE_PREFIX + "_routes";
+    private static final Pattern LISTEN_PORT = Pattern.compile("\\s*listen:\\s*\\S*:(\\d+)\\s*");
+
     private ClusterUtils() {
     }
 
@@ -33,11 +46,11 @@ public abstract class ClusterUtils {
     }
 
     public static List<ClusterInsert> createClusterInserts(ClusterDefaults cd) {
-        return createClusterInserts(createNodes(cd));
+        return createClusterInserts(createNodes(cd), cd.getSeedCount(), cd.hasRoutesIncludeFile());
     }
 
     public static List<ClusterInsert> createClusterInserts(ClusterDefaults cd, Path jsStoreDirBase) {
-        return createClusterInserts(createNodes(cd, jsStoreDirBase));
+        return createClusterInserts(createNodes(cd, jsStoreDirBase), cd.getSeedCount(), cd.hasRoutesIncludeFile());
     }
 
     public static List<ClusterNode> createNodes() {
@@ -55,17 +68,74 @@ public abstract class ClusterUtils {
     public static List<ClusterNode> createNodes(ClusterDefaults cd, Path jsStoreDirBase) {
         List<ClusterNode> nodes = new ArrayList<>();
         for (int x = 0; x < cd.getCount(); x++) {
-            int port = cd.getPortStart() + x;
-            int listen = cd.getListenStart() + x;
+            int port;
+            int listen;
+            Integer monitor;
+            if (cd.hasDynamicPorts()) {
+                port = dynamicPort();
+                listen = dynamicPort();
+                monitor = cd.hasMonitor() ? dynamicPort() : null;
+            }
+            else {
+                port = cd.getPortStart() + x;
+                listen = cd.getListenStart() + x;
+                monitor = cd.hasMonitor() ? cd.getMonitorStart() + x : null;
+            }
             String server = cd.getServerNamePrefix() + x;
-            Integer monitor = cd.hasMonitor() ? cd.getMonitorStart() + x : null;
             Path jsStoreDir = jsStoreDirBase == null ? null : Paths.get(jsStoreDirBase.toString(), "" + port);
             nodes.add( new ClusterNode(cd.getClusterName(), server, cd.getHost(), port, listen, monitor, jsStoreDir));
         }
         return nodes;
     }
 
+    private static int dynamicPort() {
+        try {
+            return NatsRunnerUtils.nextPort();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static List<ClusterInsert> createClusterInserts(List<ClusterNode> nodes) {
+        return createClusterInserts(nodes, 0, false);
+    }
+
+    /**
+     * Create the inserts for the nodes
+     * @param nodes the nodes
+     * @param seedCount route every node only to the first seedCount nodes and rely on the servers
+     *                  gossiping the rest of the mesh. Less than 1 means every node routes to every other node.
+     * @param routesIncludeFile write the routes once to a file in the temp directory that every node includes
+     *                          by its absolute path. The file is deleted when the cluster runner is closed,
+     *                          or else when the JVM exits.
+     * @return the inserts
+     */
+    public static List<ClusterInsert> createClusterInserts(List<ClusterNode> nodes, int seedCount, boolean routesIncludeFile) {
+        List<ClusterNode> routeNodes = seedCount > 0 && seedCount < nodes.size() ? nodes.subList(0, seedCount) : nodes;
+
+        String includeLine = null;
+        if (routesIncludeFile) {
+            // every node routes to every route node, including itself, which the server ignores
+            List<String> routeLines = new ArrayList<>();
+            routeLines.add("routes: [");
+            for (ClusterNode routeNode : routeNodes) {
+                String host = routeNode.host == null ? DEFAULT_CLUSTER_DEFAULTS.getHost() : routeNode.host;
+                routeLines.add("  nats-route://" + host + ":" + routeNode.listen);
+            }
+            routeLines.add("]");
+            try {
+                Path include = Files.createTempFile(ROUTES_FILE_PREFIX, NatsRunnerUtils.CONF_FILE_EXT);
+                include.toFile().deleteOnExit();
+                Files.write(include, routeLines);
+                // absolute, so it does not matter where the including config file is written
+                includeLine = "  include \"" + include.toAbsolutePath().toString().replace('\\', '/') + "\"";
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         List<ClusterInsert> inserts = new ArrayList<>();
         for (ClusterNode node : nodes) {
             List<String> lines = new ArrayList<>();
@@ -82,16 +152,194 @@ public abstract class ClusterUtils {
             lines.add("  name: " + node.clusterName);
             String host = node.host == null ? DEFAULT_CLUSTER_DEFAULTS.getHost() : node.host;
             lines.add("  listen: " + host + ":" + node.listen);
-            lines.add("  routes: [");
-            for (ClusterNode routeNode : nodes) {
-                if (!routeNode.serverName.equals(node.serverName)) {
-                    lines.add("    nats-route://" + host + ":" + routeNode.listen);
+            if (includeLine == null) {
+                lines.add("  routes: [");
+                for (ClusterNode routeNode : routeNodes) {
+                    if (!routeNode.serverName.equals(node.serverName)) {
+                        lines.add("    nats-route://" + host + ":" + routeNode.listen);
+                    }
                 }
+                lines.add("  ]");
+            }
+            else {
+                lines.add(includeLine);
             }
-            lines.add("  ]");
             lines.add("}");
             inserts.add(new ClusterInsert(node, lines.toArray(new String[0])));
         }
         return inserts;
     }
+
+    /**
+     * Delete the routes include files the inserts refer to, if they were created with one
+     * @param inserts the inserts
+     */
+    static void deleteRoutesIncludeFiles(List<ClusterInsert> inserts) {
+        for (ClusterInsert ci : inserts) {
+            if (ci.configInserts == null) {
+                continue;
+            }
+            for (String line : ci.configInserts) {
+                String trim = line.trim();
+                if (trim.startsWith("include \"") && trim.contains(ROUTES_FILE_PREFIX)) {
+                    try {
+                        Files.deleteIfExists(Paths.get(trim.substring(trim.indexOf('"') + 1, trim.lastIndexOf('"'))));
+                    }
+                    catch (IOException ignore) {
+                        // deleted on exit
+                    }
+                }
+            }
+        }
+    }
+
+    public static List<List<ClusterInsert>> createSuperClusterInserts(List<ClusterDefaults> clusters) {
+        return createSuperClusterInserts(clusters, null);
+    }
+
+    /**
+     * Create the inserts for a super cluster, clusters connected by gateways.
+     * Every node gets a gateway block with a dynamically allocated gateway port
+     * and the urls of every node in all the other clusters.
+     * Clusters without dynamic ports must be given port ranges that do not overlap,
+     * the defaults of every cluster start at the same ports.
+     * @param clusters the defaults for each cluster. Cluster names must be unique.
+     * @param jsStoreDirBase if not null, each cluster's JetStream storage goes under jsStoreDirBase/clusterName
+     * @return the inserts for each cluster, in the same order as the cluster defaults
+     */
+    public static List<List<ClusterInsert>> createSuperClusterInserts(List<ClusterDefaults> clusters, Path jsStoreDirBase) {
+        Set<String> names = new HashSet<>();
+        for (ClusterDefaults cd : clusters) {
+            if (!names.add(cd.getClusterName())) {
+                throw new IllegalArgumentException("Cluster names in a super cluster must be unique: " + cd.getClusterName());
+            }
+        }
+        validatePortRanges(clusters);
+
+        List<List<ClusterInsert>> clusterInserts = new ArrayList<>();
+        List<List<String>> gatewayUrls = new ArrayList<>();
+        List<List<Integer>> gatewayPorts = new ArrayList<>();
+        for (ClusterDefaults cd : clusters) {
+            Path base = jsStoreDirBase == null ? null : Paths.get(jsStoreDirBase.toString(), cd.getClusterName());
+            List<ClusterInsert> inserts = createClusterInserts(cd, base);
+            List<String> urls = new ArrayList<>();
+            List<Integer> ports = new ArrayList<>();
+            for (ClusterInsert ci : inserts) {
+                int gw = dynamicPort();
+                ports.add(gw);
+                urls.add("\"nats://" + hostOf(ci.node) + ":" + gw + "\"");
+            }
+            clusterInserts.add(inserts);
+            gatewayUrls.add(urls);
+            gatewayPorts.add(ports);
+        }
+
+        List<List<ClusterInsert>> result = new ArrayList<>();
+        for (int c = 0; c < clusterInserts.size(); c++) {
+            List<ClusterInsert> inserts = new ArrayList<>();
+            for (int n = 0; n < clusterInserts.get(c).size(); n++) {
+                ClusterInsert ci = clusterInserts.get(c).get(n);
+                List<String> lines = new ArrayList<>(Arrays.asList(ci.configInserts));
+                lines.add("gateway {");
+                lines.add("  name: " + ci.node.clusterName);
+                lines.add("  listen: " + hostOf(ci.node) + ":" + gatewayPorts.get(c).get(n));
+                lines.add("  gateways: [");
+                for (int other = 0; other < clusterInserts.size(); other++) {
+                    if (other != c) {
+                        lines.add("    {name: \"" + clusters.get(other).getClusterName() + "\", urls: [" + String.join(", ", gatewayUrls.get(other)) + "]}");
+                    }
+                }
+                lines.add("  ]");
+                lines.add("}");
+                inserts.add(new ClusterInsert(ci.node, lines.toArray(new String[0])));
+            }
+            result.add(inserts);
+        }
+        return result;
+    }
+
+    private static void validatePortRanges(List<ClusterDefaults> clusters) {
+        Map<Integer, String> used = new HashMap<>();
+        for (ClusterDefaults cd : clusters) {
+            if (cd.hasDynamicPorts()) {
+                continue;
+            }
+            List<Integer> ports = new ArrayList<>();
+            for (int x = 0; x < cd.getCount(); x++) {
+                ports.add(cd.getPortStart() + x);
+                ports.add(cd.getListenStart() + x);
+                if (cd.hasMonitor()) {
+                    ports.add(cd.getMonitorStart() + x);
+                }
+            }
+            for (Integer port : ports) {
+                String other = used.put(port, cd.getClusterName());
+                if (other != null && !other.equals(cd.getClusterName())) {
+                    throw new IllegalArgumentException("Clusters " + other + " and " + cd.getClusterName()
+                        + " both use port " + port + ". Use dynamic ports or give each cluster its own port ranges.");
+                }
+            }
+        }
+    }
+
+    /**
+     * The ports the inserts use: each node's client, route and monitor port and the port of every
+     * listen line, such as a gateway listener. Used to give back port leases once the servers have bound them.
+     * @param inserts the inserts
+     * @return the ports
+     */
+    static Set<Integer> insertPorts(List<ClusterInsert> inserts) {
+        Set<Integer> ports = new HashSet<>();
+        for (ClusterInsert ci : inserts) {
+            ports.add(ci.node.port);
+            ports.add(ci.node.listen);
+            if (ci.node.monitor != null) {
+                ports.add(ci.node.monitor);
+            }
+            for (String line : ci.configInserts) {
+                Matcher m = LISTEN_PORT.matcher(line);
+                if (m.matches()) {
+                    ports.add(Integer.parseInt(m.group(1)));
+                }
+            }
+        }
+        return ports;
+    }
+
+    /**
+     * Create the lines for a leafnodes block that accepts leaf node connections
+     * @param host the host to listen on
+     * @param leafPort the leaf node port
+     * @return the lines
+     */
+    public static List<String> createLeafNodeListenLines(String host, int leafPort) {
+        List<String> lines = new ArrayList<>();
+        lines.add("leafnodes {");
+        lines.add("  listen: " + host + ":" + leafPort);
+        lines.add("}");
+        return lines;
+    }
+
+    /**
+     * Create the lines for a leafnodes block with a single remote
+     * @param hubUrls the urls of the hub's leaf node listeners, i.e. nats-leaf://127.0.0.1:7422
+     * @return the lines
+     */
+    public static List<String> createLeafNodeRemoteLines(List<String> hubUrls) {
+        List<String> quoted = new ArrayList<>();
+        for (String url : hubUrls) {
+            quoted.add("\"" + url + "\"");
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add("leafnodes {");
+        lines.add("  remotes: [");
+        lines.add("    {urls: [" + String.join(", ", quoted) + "]}");
+        lines.add("  ]");
+        lines.add("}");
+        return lines;
+    }
+
+    private static String hostOf(ClusterNode node) {
+        return node.host == null ? DEFAULT_CLUSTER_DEFAULTS.getHost() : node.host;
+    }
 }
@@ -0,0 +1,269 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.nats.NatsRunnerUtils.CONF_FILE_EXT;
+import static io.nats.NatsRunnerUtils.CONF_FILE_PREFIX;
+
+/**
+ * A config file or list of config inserts compiled once into the fixed text and the slots between it
+ * that each runner fills in: the port entries and the jetstream block, which carries the store dir.
+ * Compiled templates are cached, so runners sharing a config file only read and parse it once.
+ */
+final class ConfigTemplate {
+    private static final int MAX_CACHED = 256;
+    private static final Pattern USER_PORT = Pattern.compile("\\d+");
+    private static final Pattern MAPPED_PORT = Pattern.compile("<(\\w+)>");
+
+    // least recently used templates are dropped first, guarded by itself
+    private static final Map<String, ConfigTemplate> TEMPLATES = new LinkedHashMap<String, ConfigTemplate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ConfigTemplate> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+    private static final Set<Path> WRITTEN = ConcurrentHashMap.newKeySet();
+
+    enum SlotType {
+        USER_PORT,   // a port entry with a number, replaced with the user port
+        MAPPED_PORT, // a port entry with a <key> value, replaced with the port for the key
+        JETSTREAM    // the top level jetstream entry, replaced with the generated block
+    }
+
+    static final class Slot {
+        final SlotType type;
+        final String key;        // the port key for a mapped port
+        final boolean topLevel;
+        final String listener;   // the listener a nested port belongs to, i.e. websocket
+        final NatsConf.Entry entry;
+
+        private Slot(SlotType type, String key, NatsConf.Entry entry) {
+            this.type = type;
+            this.key = key;
+            this.entry = entry;
+            topLevel = entry.getParent() == null;
+            listener = topLevel ? null : blockName(entry.getTopLevel().getKey());
+        }
+    }
+
+    private final List<String> literals; // one more than there are slots
+    private final List<Slot> slots;
+    private final boolean parsed;
+    private final boolean empty;
+
+    private ConfigTemplate(String text) {
+        empty = text.isEmpty();
+        NatsConf conf;
+        try {
+            conf = NatsConf.parse(text);
+        }
+        catch (IllegalArgumentException e) {
+            // not config we understand, it is passed through so the server can report the error
+            literals = Collections.singletonList(text);
+            slots = Collections.emptyList();
+            parsed = false;
+            return;
+        }
+        parsed = true;
+
+        List<Slot> found = new ArrayList<>();
+        for (NatsConf.Entry entry : conf.getRoot().getEntries()) {
+            if (entry.isKey(JsConfig.JETSTREAM)) {
+                found.add(new Slot(SlotType.JETSTREAM, null, entry));
+            }
+        }
+        // only the entries keyed port, wherever they are, so not http_port or a port in a string
+        for (NatsConf.Entry entry : conf.findAll("port")) {
+            if (entry.getValue() instanceof NatsConf.Scalar) {
+                NatsConf.Scalar value = (NatsConf.Scalar)entry.getValue();
+                Matcher mappedPortMatcher = MAPPED_PORT.matcher(value.getValue());
+                if (!value.isQuoted() && USER_PORT.matcher(value.getValue()).matches()) {
+                    found.add(new Slot(SlotType.USER_PORT, null, entry));
+                }
+                else if (mappedPortMatcher.matches()) {
+                    found.add(new Slot(SlotType.MAPPED_PORT, mappedPortMatcher.group(1), entry));
+                }
+            }
+        }
+        found.sort(Comparator.comparingInt(slot -> slot.entry.start));
+        slots = Collections.unmodifiableList(found);
+
+        // a user port replaces the whole entry, the others just the value
+        List<NatsConf.Node> holes = new ArrayList<>();
+        for (Slot slot : slots) {
+            holes.add(slot.type == SlotType.MAPPED_PORT ? slot.entry.getValue() : slot.entry);
+        }
+        literals = Collections.unmodifiableList(conf.renderAround(holes));
+    }
+
+    /**
+     * Get the compiled template for a config file. The file is read every time, but only parsed
+     * when its content is new, so a change is always seen even if the size and time stamp are the same.
+     * @param path the file
+     * @return the template
+     * @throws IOException if the file could not be read
+     */
+    static ConfigTemplate forFile(Path path) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        String cacheKey = "file:" + hash(content);
+        ConfigTemplate template = cached(cacheKey);
+        if (template == null) {
+            String text = new String(content, StandardCharsets.UTF_8);
+            template = cache(cacheKey, new ConfigTemplate(stripFinalNewline(text)));
+        }
+        return template;
+    }
+
+    /**
+     * Get the compiled template for config lines
+     * @param lines the lines
+     * @return the template
+     */
+    static ConfigTemplate forLines(List<String> lines) {
+        String text = String.join("\n", lines);
+        ConfigTemplate template = cached(text);
+        return template == null ? cache(text, new ConfigTemplate(text)) : template;
+    }
+
+    private static ConfigTemplate cached(String key) {
+        synchronized (TEMPLATES) {
+            return TEMPLATES.get(key);
+        }
+    }
+
+    private static ConfigTemplate cache(String key, ConfigTemplate template) {
+        synchronized (TEMPLATES) {
+            TEMPLATES.put(key, template);
+        }
+        return template;
+    }
+
+    // reading lines drops the newline at the end of the file, so it did not make an empty last line
+    private static String stripFinalNewline(String text) {
+        if (text.endsWith("\r\n")) {
+            return text.substring(0, text.length() - 2);
+        }
+        return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * The fixed text before each slot, then the text after the last one
+     * @return the literals
+     */
+    List<String> getLiterals() {
+        return literals;
+    }
+
+    List<Slot> getSlots() {
+        return slots;
+    }
+
+    /**
+     * Whether the text was config that could be parsed. If not, it has no slots.
+     * @return true if parsed
+     */
+    boolean isParsed() {
+        return parsed;
+    }
+
+    /**
+     * Whether there were no lines at all
+     * @return true if empty
+     */
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * The listener a top level config block configures, i.e. websocket for "ws {"
+     */
+    private static String blockName(String key) {
+        String name = key.toLowerCase();
+        switch (name) {
+            case "ws": return "websocket";
+            case "leaf": return "leafnodes";
+            default: return name;
+        }
+    }
+
+    // ====================================================================================================
+    // Rendered files
+    // ====================================================================================================
+    /**
+     * Write a rendered config to a file named for the hash of its content. A file with the
+     * same content is only written once, later runners with the same config share it.
+     * Files this JVM writes are deleted when it exits, a file another JVM wrote is left to that JVM.
+     * @param lines the config lines
+     * @return the file
+     * @throws IOException if the file could not be written
+     */
+    static File write(List<String> lines) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append(System.lineSeparator());
+        }
+        byte[] content = sb.toString().getBytes(StandardCharsets.UTF_8);
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"));
+        Path target = dir.resolve(CONF_FILE_PREFIX + "_" + hash(content) + CONF_FILE_EXT);
+        if (!Files.exists(target)) {
+            // another runner may be writing the same file, so never let the server see a partial one
+            Path temp = Files.createTempFile(dir, CONF_FILE_PREFIX, ".tmp");
+            try {
+                Files.write(temp, content);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(temp);
+            }
+            if (WRITTEN.add(target)) {
+                target.toFile().deleteOnExit(); // once per file, every call adds to the JVM's list
+            }
+        }
+        return target.toFile();
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every java platform has SHA-256
+        }
+    }
+}
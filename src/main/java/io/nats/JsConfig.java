@@ -15,23 +15,53 @@ package io.nats;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
- * An object representing the JetStream Storage dir
+ * An object representing the JetStream Storage dir and the jetstream config block.
+ * Use the builder for typed options such as the sync interval and store limits.
  */
 public class JsConfig {
+    public static final String JETSTREAM = "jetstream";
     public static final String STORE_DIR = "store_dir";
+    public static final String SYNC_INTERVAL = "sync_interval";
+    public static final String MAX_MEMORY_STORE = "max_memory_store";
+    public static final String MAX_FILE_STORE = "max_file_store";
+    public static final String MAX_BUFFERED_MSGS = "max_buffered_msgs";
+    public static final String DOMAIN = "domain";
+    public static final String UNIQUE_TAG = "unique_tag";
+    public static final String SYNC_ALWAYS = "always";
     public static final String INDENT = "    ";
 
+    private static final Pattern DURATION = Pattern.compile("\\d+(ns|us|ms|s|m|h)");
+    private static final Pattern NAME = Pattern.compile("[^\\s.*>\"]+");
+    private static final Pattern SIZE = Pattern.compile("(\\d+)\\s*([kmgt]|[kmgt]b|[kmgt]i|[kmgt]ib)?", Pattern.CASE_INSENSITIVE);
+
     public final String storeDir;
+    public final Path storeDirPath;
     public final List<String> configInserts;
+    public final Map<String, String> options; // the typed options, key to the value as written
+    final Map<String, String> blockOptions;   // the scalar entries of the block, by typed option key
 
     public JsConfig() throws IOException {
-        this(Files.createTempDirectory(null).toString(), null);
+        this((JsStoreLocation)null);
+    }
+
+    /**
+     * Construct with a new store directory
+     * @param location where to create the store directory, null for the default location
+     * @throws IOException if the store directory could not be created
+     */
+    public JsConfig(JsStoreLocation location) throws IOException {
+        this(JsStoreUtils.createStoreDir(location).toString(), null);
     }
 
     public JsConfig(Path dirPath) {
@@ -39,48 +69,137 @@ public class JsConfig {
     }
 
     public JsConfig(List<String> lines) throws IOException {
-        this(Files.createTempDirectory(null).toString(), lines);
+        this((JsStoreLocation)null, lines);
     }
 
-    private JsConfig(String inputDir, List<String> inputLines)  {
+    public JsConfig(JsStoreLocation location, List<String> lines) throws IOException {
+        this(JsStoreUtils.createStoreDir(location).toString(), parseBlock(lines));
+    }
+
+    public JsConfig(Path dirPath, List<String> lines) {
+        this(dirPath.toString(), parseBlock(lines));
+    }
+
+    private JsConfig(String inputDir, NatsConf.Entry block)  {
+        this(inputDir, block, Collections.emptyMap());
+    }
+
+    private JsConfig(String inputDir, NatsConf.Entry block, Map<String, String> options)  {
         this.storeDir = STORE_DIR + "=" + fixDir(inputDir);
+        this.storeDirPath = Paths.get(inputDir);
+        this.options = Collections.unmodifiableMap(new LinkedHashMap<>(options));
+        Map<String, String> fromBlock = new LinkedHashMap<>();
 
         configInserts = new ArrayList<>();
         configInserts.add("jetstream {");
 
-        List<String> lines = null;
-        if (inputLines != null && !inputLines.isEmpty()) {
-            // combine and remove spaces to make it easier to parse
-            StringBuilder sbx = new StringBuilder();
-            for (String line : inputLines) {
-                sbx.append(line.trim().replaceAll(" ", ""));
-            }
-            String s = sbx.toString();
-            if (!s.startsWith("jetstream")) {
-                throw new IllegalArgumentException("Input not recognized as jetstream block");
-            }
-
-            if (!s.endsWith("enabled")) {
-                s = s.substring(9); // skip past jetstream
-                // it must then start with '{' or ':{'
-                // it must end with }
-                if ((!s.startsWith("{") || !s.startsWith(":{")) && !s.endsWith("}")) {
-                    throw new IllegalArgumentException("Input not recognized as jetstream block");
-                }
-
-                // skip past { and don't include end }
-                int at = s.indexOf("{");
-                s = s.substring(at + 1, s.length() - 1);
-                String[] split = s.split(",");
-                for (String config : split) {
-                    if (!config.isEmpty() && !config.contains(STORE_DIR)) {
-                        configInserts.add(INDENT + config + ",");
+        if (block != null) {
+            if (block.getValue() instanceof NatsConf.Block) {
+                for (NatsConf.Node node : ((NatsConf.Block)block.getValue()).getNodes()) {
+                    if (node instanceof NatsConf.Entry) {
+                        NatsConf.Entry entry = (NatsConf.Entry)node;
+                        String key = canonicalKey(entry.getKey());
+                        if (!key.equals(STORE_DIR) && !options.containsKey(key)) {
+                            configInserts.add(INDENT + node.compact() + ",");
+                            if (entry.getValue() instanceof NatsConf.Scalar) {
+                                fromBlock.put(key, ((NatsConf.Scalar)entry.getValue()).getValue());
+                            }
+                        }
+                    }
+                    else {
+                        configInserts.add(INDENT + node.compact());
                     }
                 }
             }
+            else if (!isEnabled(block.getValue())) {
+                throw new IllegalArgumentException("Input not recognized as jetstream block");
+            }
+        }
+        for (Map.Entry<String, String> entry : options.entrySet()) {
+            configInserts.add(INDENT + entry.getKey() + ": " + entry.getValue() + ",");
         }
         configInserts.add(INDENT + this.storeDir);
         configInserts.add("}");
+        blockOptions = Collections.unmodifiableMap(fromBlock);
+    }
+
+    /**
+     * The value of an option as the server will see it, whether typed or from the block
+     * @param key the typed option key, i.e. {@value #MAX_MEMORY_STORE}
+     * @return the value or null if it is not set
+     */
+    String getOption(String key) {
+        String value = options.get(key);
+        return value == null ? blockOptions.get(key) : value;
+    }
+
+    /**
+     * Parse a size the way the server does, a number optionally followed by a unit.
+     * K, M, G and T are powers of 1000, KB, MB, GB and TB and the KiB forms are powers of 1024.
+     * @param size the size, i.e. 1GB
+     * @return the bytes or -1 if it is not a size
+     */
+    static long parseSize(String size) {
+        Matcher m = SIZE.matcher(size.trim());
+        if (!m.matches()) {
+            return -1;
+        }
+        long bytes = Long.parseLong(m.group(1));
+        if (m.group(2) == null) {
+            return bytes;
+        }
+        String unit = m.group(2).toLowerCase();
+        long base = unit.length() == 1 ? 1000 : 1024;
+        int power = "kmgt".indexOf(unit.charAt(0)) + 1;
+        for (int i = 0; i < power; i++) {
+            bytes *= base;
+        }
+        return bytes;
+    }
+
+    /**
+     * Parse the lines of a jetstream block
+     * @return the jetstream entry or null if there are no lines
+     */
+    static NatsConf.Entry parseBlock(List<String> lines) {
+        if (lines == null || lines.isEmpty()) {
+            return null;
+        }
+        NatsConf.Block root;
+        try {
+            root = NatsConf.parse(lines).getRoot();
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Input not recognized as jetstream block: " + e.getMessage(), e);
+        }
+        if (root.getNodes().size() != 1 || root.get(JETSTREAM) == null) {
+            throw new IllegalArgumentException("Input not recognized as jetstream block");
+        }
+        return root.get(JETSTREAM);
+    }
+
+    private static boolean isEnabled(NatsConf.Value value) {
+        if (value instanceof NatsConf.Scalar) {
+            String s = ((NatsConf.Scalar)value).getValue();
+            return s.equalsIgnoreCase("enabled") || s.equalsIgnoreCase("true");
+        }
+        return false;
+    }
+
+    /**
+     * The typed option key for an entry, accounting for the server's aliases
+     */
+    private static String canonicalKey(String key) {
+        key = key.toLowerCase();
+        switch (key) {
+            case "max_mem_store":
+            case "max_mem":
+                return MAX_MEMORY_STORE;
+            case "max_file":
+                return MAX_FILE_STORE;
+            default:
+                return key;
+        }
     }
 
     private static String fixDir(String dir) {
@@ -90,4 +209,154 @@ public class JsConfig {
         return dir.replace("\\", "/");
     }
 
+    /**
+     * Get a new Builder, for typed options
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ====================================================================================================
+    // Builder
+    // ====================================================================================================
+    public static class Builder {
+        Path storeDir;
+        JsStoreLocation storeLocation;
+        NatsConf.Entry block;
+        final Map<String, String> options = new LinkedHashMap<>();
+
+        public Builder storeDir(Path storeDir) {
+            this.storeDir = storeDir;
+            return this;
+        }
+
+        public Builder storeLocation(JsStoreLocation storeLocation) {
+            this.storeLocation = storeLocation;
+            return this;
+        }
+
+        /**
+         * A jetstream block to start from, i.e. from a config file. Typed options replace the same entries in it.
+         * @param lines the lines of the block
+         * @return the builder
+         * @throws IllegalArgumentException if the lines are not a jetstream block
+         */
+        public Builder lines(List<String> lines) {
+            this.block = parseBlock(lines);
+            return this;
+        }
+
+        Builder block(NatsConf.Entry block) {
+            this.block = block;
+            return this;
+        }
+
+        /**
+         * How often the store is synced to disk
+         * @param syncInterval a duration such as 2m or 500ms, or {@value #SYNC_ALWAYS} to sync every write
+         * @return the builder
+         */
+        public Builder syncInterval(String syncInterval) {
+            if (syncInterval == null) {
+                options.remove(SYNC_INTERVAL);
+                return this;
+            }
+            if (!syncInterval.equals(SYNC_ALWAYS) && !DURATION.matcher(syncInterval).matches()) {
+                throw new IllegalArgumentException("Sync interval must be a duration like 2m or 500ms, or " + SYNC_ALWAYS + ".");
+            }
+            options.put(SYNC_INTERVAL, syncInterval);
+            return this;
+        }
+
+        public Builder syncInterval(long millis) {
+            if (millis < 1) {
+                throw new IllegalArgumentException("Sync interval must be at least 1ms.");
+            }
+            return syncInterval(millis + "ms");
+        }
+
+        public Builder syncAlways() {
+            return syncInterval(SYNC_ALWAYS);
+        }
+
+        public Builder maxMemoryStore(long bytes) {
+            return positive(MAX_MEMORY_STORE, bytes);
+        }
+
+        public Builder maxFileStore(long bytes) {
+            return positive(MAX_FILE_STORE, bytes);
+        }
+
+        public Builder maxBufferedMsgs(long count) {
+            return positive(MAX_BUFFERED_MSGS, count);
+        }
+
+        /**
+         * The JetStream domain
+         * @param domain the domain, which may not contain whitespace, dots, wildcards or quotes
+         * @return the builder
+         */
+        public Builder domain(String domain) {
+            return name(DOMAIN, domain);
+        }
+
+        /**
+         * The server tag prefix used to place replicas on servers with different tag values
+         * @param uniqueTag the tag prefix, i.e. az:
+         * @return the builder
+         */
+        public Builder uniqueTag(String uniqueTag) {
+            return name(UNIQUE_TAG, uniqueTag);
+        }
+
+        /**
+         * Apply a profile's options, replacing the ones it sets
+         * @param profile the profile
+         * @return the builder
+         */
+        public Builder profile(JsProfile profile) {
+            profile.applyTo(this);
+            return this;
+        }
+
+        private Builder positive(String key, long value) {
+            if (value < 1) {
+                throw new IllegalArgumentException(key + " must be greater than 0.");
+            }
+            options.put(key, Long.toString(value));
+            return this;
+        }
+
+        private Builder name(String key, String value) {
+            if (value == null) {
+                options.remove(key);
+                return this;
+            }
+            if (!NAME.matcher(value).matches()) {
+                throw new IllegalArgumentException(key + " may not be empty or contain whitespace, dots, wildcards or quotes.");
+            }
+            options.put(key, "\"" + value + "\"");
+            return this;
+        }
+
+        Builder copy() {
+            Builder b = new Builder();
+            b.storeDir = storeDir;
+            b.storeLocation = storeLocation;
+            b.block = block;
+            b.options.putAll(options);
+            return b;
+        }
+
+        /**
+         * Build the config, creating the store directory unless one was given
+         * @return the config
+         * @throws IOException if the store directory could not be created
+         */
+        public JsConfig build() throws IOException {
+            String dir = storeDir == null ? JsStoreUtils.createStoreDir(storeLocation).toString() : storeDir.toString();
+            return new JsConfig(dir, block, options);
+        }
+    }
 }
@@ -0,0 +1,42 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+/**
+ * Ready made sets of JetStream options
+ */
+public enum JsProfile {
+    /**
+     * For tests: syncing is left to the operating system for minutes at a time and the stores are small,
+     * so many servers fit on one machine
+     */
+    FAST {
+        @Override
+        void applyTo(JsConfig.Builder b) {
+            b.syncInterval("5m").maxMemoryStore(256L * 1024 * 1024).maxFileStore(1024L * 1024 * 1024);
+        }
+    },
+
+    /**
+     * For durability benchmarks: every write is synced before it is acknowledged
+     */
+    DURABLE {
+        @Override
+        void applyTo(JsConfig.Builder b) {
+            b.syncAlways();
+        }
+    };
+
+    abstract void applyTo(JsConfig.Builder b);
+}
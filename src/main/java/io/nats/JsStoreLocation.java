@@ -0,0 +1,22 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+/**
+ * Where new JetStream store directories are created
+ */
+public enum JsStoreLocation {
+    DISK, // a temp directory under java.io.tmpdir
+    RAM   // a directory on a memory backed file system, i.e. /dev/shm, within the JVM's RAM store budget, otherwise DISK
+}
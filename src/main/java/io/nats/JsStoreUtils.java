@@ -0,0 +1,387 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * JetStream store directory fixtures. A stopped server's store is snapshotted once into the fixture directory,
+ * then every server that needs the data starts from a clone of the snapshot instead of publishing it again.
+ * A clone is a full copy, so a server can do anything to its store without changing the fixture.
+ * Cloning costs a full copy every time: it reads and writes every byte of the snapshot and uses as much disk.
+ * It saves the time to publish the data, not the time to copy it, so keep fixtures only as large as tests need.
+ * <p>
+ * Also creates store directories according to a {@link JsStoreLocation}. RAM store directories go under a memory
+ * backed file system, by default /dev/shm when it exists, as long as the ones this JVM created use less than
+ * the RAM store budget. They are deleted when the JVM exits since they hold on to memory.
+ */
+public abstract class JsStoreUtils {
+    public static final String DEFAULT_FIXTURE_DIR_NAME = NatsRunnerUtils.CONF_FILE_PREFIX + "_js_fixtures";
+    public static final long DEFAULT_RAM_STORE_BUDGET = 1024L * 1024 * 1024;
+    public static final long MIN_RAM_STORE_FREE_SPACE = 64L * 1024 * 1024;
+    private static final String SNAPSHOT_ID_FILE = ".snapshot";
+    private static final int CLONE_TRIES = 10;
+    private static final long CLONE_RETRY_DELAY = 20;
+
+    private static Path FixtureDir = Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_FIXTURE_DIR_NAME);
+    private static Path RamStoreRoot = defaultRamStoreRoot();
+    private static long RamStoreBudget = DEFAULT_RAM_STORE_BUDGET;
+    private static final Set<Path> RAM_STORE_DIRS = new LinkedHashSet<>(); // guarded by itself
+    private static boolean RamCleanupRegistered; // guarded by RAM_STORE_DIRS
+
+    private JsStoreUtils() {}
+
+    /**
+     * Snapshot a stopped server's store directory, replacing any snapshot with the same name
+     * @param runner the runner, which must have JetStream enabled and be shut down
+     * @param name the fixture name
+     * @return the snapshot directory
+     * @throws IOException if the store could not be copied
+     * @throws IllegalStateException if JetStream is not enabled or the server is still running
+     */
+    public static Path snapshot(NatsServerRunner runner, String name) throws IOException {
+        JsConfig jsConfig = runner.getJsConfig();
+        if (jsConfig == null) {
+            throw new IllegalStateException("JetStream is not enabled.");
+        }
+        if (runner.isRunning()) {
+            throw new IllegalStateException("The server must be shut down before its store is snapshotted.");
+        }
+        return snapshot(jsConfig.storeDirPath, name);
+    }
+
+    /**
+     * Snapshot a store directory, replacing any snapshot with the same name. The store must not be in use.
+     * The snapshot is a full copy, built beside the fixture and moved into place. Replacing it takes two moves,
+     * the old one out and the new one in, so for a moment there is no snapshot. A concurrent clone
+     * retries when the snapshot is missing or is replaced while it is being copied.
+     * @param storeDir the store directory
+     * @param name the fixture name
+     * @return the snapshot directory
+     * @throws IOException if the store could not be copied
+     */
+    public static Path snapshot(Path storeDir, String name) throws IOException {
+        Path target = getSnapshot(name);
+        Files.createDirectories(FixtureDir);
+        Path building = Files.createTempDirectory(FixtureDir, name + ".");
+        copyTree(storeDir, building);
+        Files.write(building.resolve(SNAPSHOT_ID_FILE), UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII));
+        Path old = null;
+        if (Files.exists(target)) {
+            old = Files.createTempDirectory(FixtureDir, name + ".old.");
+            Files.move(target, old, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(building, target, StandardCopyOption.ATOMIC_MOVE);
+        if (old != null) {
+            deleteTree(old);
+        }
+        return target;
+    }
+
+    /**
+     * Whether there is a snapshot with the name
+     * @param name the fixture name
+     * @return true if there is
+     */
+    public static boolean hasSnapshot(String name) {
+        return Files.exists(getSnapshot(name).resolve(SNAPSHOT_ID_FILE));
+    }
+
+    /**
+     * Get the directory of the snapshot with the name, whether or not it exists
+     * @param name the fixture name
+     * @return the directory
+     */
+    public static Path getSnapshot(String name) {
+        return FixtureDir.resolve(name);
+    }
+
+    /**
+     * Clone a snapshot into a new temp directory, to be used as a store directory,
+     * for instance with {@link NatsServerRunner.Builder#jsStoreDir(Path)}. If the snapshot is being replaced,
+     * the clone is retried so it is a copy of either the old snapshot or the new one, never a mix.
+     * Every clone is a full copy of the snapshot.
+     * @param name the fixture name
+     * @return the new store directory
+     * @throws IOException if there is no such snapshot or it could not be cloned
+     */
+    public static Path clone(String name) throws IOException {
+        Path snapshot = getSnapshot(name);
+        boolean replaced = false;
+        for (int tries = 1; ; tries++) {
+            String id = snapshotId(snapshot);
+            if (id != null) {
+                Path target = Files.createTempDirectory(null);
+                try {
+                    copyTree(snapshot, target);
+                    if (id.equals(snapshotId(snapshot))) {
+                        return target;
+                    }
+                }
+                catch (NoSuchFileException e) {
+                    // moved away while copying
+                }
+                deleteTree(target);
+                replaced = true;
+            }
+            if (tries == CLONE_TRIES) {
+                if (replaced) {
+                    throw new IOException("JetStream snapshot " + name + " kept being replaced while cloning.");
+                }
+                throw new IOException("No JetStream snapshot named " + name + " in " + FixtureDir + ".");
+            }
+            try {
+                Thread.sleep(CLONE_RETRY_DELAY);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for JetStream snapshot " + name + ".", e);
+            }
+        }
+    }
+
+    /**
+     * The id written into a snapshot when it is made, which changes each time it is replaced
+     * @return the id or null if there is no snapshot
+     */
+    private static String snapshotId(Path snapshot) throws IOException {
+        try {
+            return new String(Files.readAllBytes(snapshot.resolve(SNAPSHOT_ID_FILE)), StandardCharsets.US_ASCII);
+        }
+        catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create a new, empty store directory
+     * @param location where to create it, null for the default from {@link NatsRunnerUtils#getDefaultJsStoreLocation()}
+     * @return the directory
+     * @throws IOException if the directory could not be created
+     */
+    public static Path createStoreDir(JsStoreLocation location) throws IOException {
+        if (location == null) {
+            location = NatsRunnerUtils.getDefaultJsStoreLocation();
+        }
+        if (location == JsStoreLocation.RAM) {
+            Path dir = createRamStoreDir();
+            if (dir != null) {
+                return dir;
+            }
+        }
+        return Files.createTempDirectory(null);
+    }
+
+    /**
+     * Create a store directory under the RAM store root
+     * @return the directory or null if there is no root, the budget is used up or the file system is nearly full
+     */
+    private static Path createRamStoreDir() throws IOException {
+        Path root = RamStoreRoot;
+        if (root == null || !Files.isDirectory(root)) {
+            return null;
+        }
+        synchronized (RAM_STORE_DIRS) {
+            if (getRamStoreUsage() >= RamStoreBudget || Files.getFileStore(root).getUsableSpace() < MIN_RAM_STORE_FREE_SPACE) {
+                return null;
+            }
+            if (!RamCleanupRegistered) {
+                RamCleanupRegistered = true;
+                Runtime.getRuntime().addShutdownHook(new Thread(JsStoreUtils::deleteRamStoreDirs, "nats-ram-store-cleanup"));
+            }
+            Path dir = Files.createTempDirectory(root, NatsRunnerUtils.CONF_FILE_PREFIX + "_js");
+            RAM_STORE_DIRS.add(dir);
+            return dir;
+        }
+    }
+
+    /**
+     * The bytes used by the RAM store directories this JVM created
+     * @return the bytes
+     */
+    public static long getRamStoreUsage() {
+        synchronized (RAM_STORE_DIRS) {
+            long used = 0;
+            Iterator<Path> iterator = RAM_STORE_DIRS.iterator();
+            while (iterator.hasNext()) {
+                Path dir = iterator.next();
+                if (!Files.isDirectory(dir)) {
+                    iterator.remove();
+                    continue;
+                }
+                try {
+                    used += size(dir);
+                }
+                catch (IOException e) {
+                    // being written, count what could be read
+                }
+            }
+            return used;
+        }
+    }
+
+    private static long size(Path dir) throws IOException {
+        long[] size = {0};
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                size[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE; // i.e. deleted by the server while walking
+            }
+        });
+        return size[0];
+    }
+
+    private static void deleteRamStoreDirs() {
+        synchronized (RAM_STORE_DIRS) {
+            for (Path dir : RAM_STORE_DIRS) {
+                try {
+                    if (Files.isDirectory(dir)) {
+                        deleteTree(dir);
+                    }
+                }
+                catch (IOException e) {
+                    // best effort, the JVM is exiting
+                }
+            }
+            RAM_STORE_DIRS.clear();
+        }
+    }
+
+    private static Path defaultRamStoreRoot() {
+        Path shm = Paths.get("/dev/shm");
+        return Files.isDirectory(shm) && Files.isWritable(shm) ? shm : null;
+    }
+
+    /**
+     * Delete everything in a directory, leaving the directory itself
+     * @param dir the directory
+     * @throws IOException if something could not be deleted
+     */
+    public static void emptyDirectory(Path dir) throws IOException {
+        if (Files.isDirectory(dir)) {
+            walk(dir, dir, false);
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        walk(dir, dir, true);
+    }
+
+    private static void walk(Path dir, Path root, boolean deleteRoot) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                try {
+                    Files.delete(file);
+                }
+                catch (AccessDeniedException e) {
+                    // read only files can't be deleted on Windows
+                    //noinspection ResultOfMethodCallIgnored
+                    file.toFile().setWritable(true);
+                    Files.delete(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                if (deleteRoot || !d.equals(root)) {
+                    Files.delete(d);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void copyTree(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path relative = source.relativize(file);
+                if (!relative.toString().equals(SNAPSHOT_ID_FILE)) {
+                    Path to = target.resolve(relative);
+                    Files.copy(file, to, StandardCopyOption.COPY_ATTRIBUTES);
+                    //noinspection ResultOfMethodCallIgnored
+                    to.toFile().setWritable(true);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public static Path getRamStoreRoot() {
+        return RamStoreRoot;
+    }
+
+    /**
+     * Set the directory RAM store directories are created under, which should be on a memory backed file system
+     * @param ramStoreRoot the directory or null to never use RAM
+     */
+    public static void setRamStoreRoot(Path ramStoreRoot) {
+        RamStoreRoot = ramStoreRoot;
+    }
+
+    public static long getRamStoreBudget() {
+        return RamStoreBudget;
+    }
+
+    /**
+     * Set how many bytes the RAM store directories created by this JVM may use before new ones go to disk
+     * @param ramStoreBudget the budget in bytes
+     */
+    public static void setRamStoreBudget(long ramStoreBudget) {
+        RamStoreBudget = ramStoreBudget;
+    }
+
+    public static Path getFixtureDir() {
+        return FixtureDir;
+    }
+
+    /**
+     * Set the directory snapshots are kept in, shared by every JVM that uses the same directory
+     * @param fixtureDir the directory
+     */
+    public static void setFixtureDir(Path fixtureDir) {
+        FixtureDir = fixtureDir;
+    }
+}
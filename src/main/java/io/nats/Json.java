@@ -0,0 +1,253 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON to read the server monitoring endpoints.
+ * Objects become a {@code Map<String, Object>}, arrays a {@code List<Object>}, numbers a {@code Long} or {@code Double}.
+ */
+final class Json {
+    private final String json;
+    private int at;
+
+    private Json(String json) {
+        this.json = json;
+        at = 0;
+    }
+
+    static Object parse(String json) {
+        Json p = new Json(json);
+        Object value = p.value();
+        p.skipWhitespace();
+        if (p.at != json.length()) {
+            throw p.error("Unexpected trailing characters");
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseObject(String json) {
+        Object o = parse(json);
+        if (o instanceof Map) {
+            return (Map<String, Object>)o;
+        }
+        throw new IllegalArgumentException("JSON is not an object.");
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> getObject(Map<String, Object> map, String key) {
+        Object o = map == null ? null : map.get(key);
+        return o instanceof Map ? (Map<String, Object>)o : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> getList(Map<String, Object> map, String key) {
+        Object o = map == null ? null : map.get(key);
+        return o instanceof List ? (List<Object>)o : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> getObjectList(Map<String, Object> map, String key) {
+        List<Map<String, Object>> objects = new ArrayList<>();
+        List<Object> list = getList(map, key);
+        if (list != null) {
+            for (Object o : list) {
+                if (o instanceof Map) {
+                    objects.add((Map<String, Object>)o);
+                }
+            }
+        }
+        return objects;
+    }
+
+    static String getString(Map<String, Object> map, String key) {
+        Object o = map == null ? null : map.get(key);
+        return o instanceof String ? (String)o : null;
+    }
+
+    static long getLong(Map<String, Object> map, String key, long dflt) {
+        Object o = map == null ? null : map.get(key);
+        return o instanceof Number ? ((Number)o).longValue() : dflt;
+    }
+
+    static boolean getBoolean(Map<String, Object> map, String key) {
+        Object o = map == null ? null : map.get(key);
+        return o instanceof Boolean && (Boolean)o;
+    }
+
+    private Object value() {
+        skipWhitespace();
+        if (at >= json.length()) {
+            throw error("Unexpected end");
+        }
+        char c = json.charAt(at);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default: return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        at++; // {
+        skipWhitespace();
+        if (peek() == '}') {
+            at++;
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected object key");
+            }
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            map.put(key, value());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return map;
+            }
+            if (c != ',') {
+                throw error("Expected , or }");
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        at++; // [
+        skipWhitespace();
+        if (peek() == ']') {
+            at++;
+            return list;
+        }
+        while (true) {
+            list.add(value());
+            skipWhitespace();
+            char c = next();
+            if (c == ']') {
+                return list;
+            }
+            if (c != ',') {
+                throw error("Expected , or ]");
+            }
+        }
+    }
+
+    private String string() {
+        at++; // opening quote
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\') {
+                char e = next();
+                switch (e) {
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (at + 4 > json.length()) {
+                            throw error("Bad unicode escape");
+                        }
+                        sb.append((char)Integer.parseInt(json.substring(at, at + 4), 16));
+                        at += 4;
+                        break;
+                    default: sb.append(e); // " \ /
+                }
+            }
+            else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private Object literal(String literal, Object value) {
+        if (!json.startsWith(literal, at)) {
+            throw error("Unexpected value");
+        }
+        at += literal.length();
+        return value;
+    }
+
+    private Number number() {
+        int start = at;
+        boolean decimal = false;
+        while (at < json.length()) {
+            char c = json.charAt(at);
+            if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+            }
+            else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+            at++;
+        }
+        if (start == at) {
+            throw error("Unexpected character");
+        }
+        String s = json.substring(start, at);
+        try {
+            return decimal ? (Number)Double.parseDouble(s) : (Number)Long.parseLong(s);
+        }
+        catch (NumberFormatException e) {
+            return Double.parseDouble(s); // larger than a long
+        }
+    }
+
+    private void skipWhitespace() {
+        while (at < json.length() && Character.isWhitespace(json.charAt(at))) {
+            at++;
+        }
+    }
+
+    private char peek() {
+        if (at >= json.length()) {
+            throw error("Unexpected end");
+        }
+        return json.charAt(at);
+    }
+
+    private char next() {
+        char c = peek();
+        at++;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw error("Expected " + c);
+        }
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException(msg + " at position " + at + ".");
+    }
+}
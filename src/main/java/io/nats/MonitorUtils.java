@@ -0,0 +1,201 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helpers for reading the server's http monitoring endpoints
+ */
+public abstract class MonitorUtils {
+    public static final String ROUTEZ = "routez";
+    public static final String JSZ = "jsz";
+    public static final String GATEWAYZ = "gatewayz";
+    public static final String LEAFZ = "leafz";
+    public static final String JSZ_STREAMS = "jsz?accounts=true&streams=true&config=true";
+    public static final long DEFAULT_MONITOR_POLL_INTERVAL = 50;
+    public static final int DEFAULT_MONITOR_REQUEST_TIMEOUT = 1000;
+
+    private MonitorUtils() {}
+
+    /**
+     * Get and parse the json from a monitoring endpoint, i.e. http://host:port/routez
+     * @param host the host
+     * @param monitorPort the monitor (http) port
+     * @param endpoint the endpoint, i.e. routez, optionally with a query string
+     * @return the json object as a map
+     * @throws IOException if the endpoint could not be read or did not return a json object
+     */
+    public static Map<String, Object> getMonitorJson(String host, int monitorPort, String endpoint) throws IOException {
+        URL url = new URL(NatsRunnerUtils.getUri("http", host, monitorPort) + "/" + endpoint);
+        HttpURLConnection conn = (HttpURLConnection)url.openConnection();
+        conn.setConnectTimeout(DEFAULT_MONITOR_REQUEST_TIMEOUT);
+        conn.setReadTimeout(DEFAULT_MONITOR_REQUEST_TIMEOUT);
+        try {
+            int status = conn.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Monitor request " + url + " returned status " + status);
+            }
+            try (InputStream in = conn.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return Json.parseObject(new String(out.toByteArray(), StandardCharsets.UTF_8));
+            }
+            catch (IllegalArgumentException e) {
+                throw new IOException("Monitor request " + url + " did not return a json object.", e);
+            }
+        }
+        finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Get the number of distinct servers a node has routes to. Pooled route connections
+     * to the same server are only counted once.
+     * @param host the host
+     * @param monitorPort the monitor (http) port
+     * @return the number of servers
+     * @throws IOException if the endpoint could not be read
+     */
+    public static int getRoutedServerCount(String host, int monitorPort) throws IOException {
+        Set<String> remotes = new HashSet<>();
+        for (Map<String, Object> route : Json.getObjectList(getMonitorJson(host, monitorPort, ROUTEZ), "routes")) {
+            String remote = Json.getString(route, "remote_id");
+            if (remote != null) {
+                remotes.add(remote);
+            }
+        }
+        return remotes.size();
+    }
+
+    /**
+     * Get the number of other clusters a node has an outbound gateway connection to.
+     * Inbound gateways are not counted, a cluster only guarantees one inbound connection per remote server.
+     * @param host the host
+     * @param monitorPort the monitor (http) port
+     * @return the number of clusters
+     * @throws IOException if the endpoint could not be read
+     */
+    public static int getOutboundGatewayCount(String host, int monitorPort) throws IOException {
+        return countConnected(Json.getObject(getMonitorJson(host, monitorPort, GATEWAYZ), "outbound_gateways"));
+    }
+
+    /**
+     * Get the number of leaf node connections a server has
+     * @param host the host
+     * @param monitorPort the monitor (http) port
+     * @return the number of leaf nodes
+     * @throws IOException if the endpoint could not be read
+     */
+    public static int getLeafNodeCount(String host, int monitorPort) throws IOException {
+        return (int)Json.getLong(getMonitorJson(host, monitorPort, LEAFZ), "leafnodes", 0);
+    }
+
+    private static int countConnected(Map<String, Object> gateways) {
+        if (gateways == null) {
+            return 0;
+        }
+        int count = 0;
+        for (String name : gateways.keySet()) {
+            Map<String, Object> gateway = Json.getObject(gateways, name);
+            if (gateway != null && !gateway.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Whether the JetStream meta group is ready: every server agrees on a meta leader
+     * and the leader reports all of its peers as current.
+     * @param jszReports the /jsz json from every server in the cluster
+     * @param clusterSize the number of servers in the cluster
+     * @return true if ready
+     */
+    public static boolean isMetaReady(List<Map<String, Object>> jszReports, int clusterSize) {
+        String leader = null;
+        for (Map<String, Object> jsz : jszReports) {
+            String l = Json.getString(Json.getObject(jsz, "meta_cluster"), "leader");
+            if (l == null || l.isEmpty() || (leader != null && !leader.equals(l))) {
+                return false;
+            }
+            leader = l;
+        }
+        // only the leader reports the replicas
+        for (Map<String, Object> jsz : jszReports) {
+            List<Map<String, Object>> replicas = Json.getObjectList(Json.getObject(jsz, "meta_cluster"), "replicas");
+            if (replicas.size() >= clusterSize - 1 && allCurrent(replicas)) {
+                return true;
+            }
+        }
+        return clusterSize == 1 && leader != null;
+    }
+
+    /**
+     * Whether a stream has a leader and all of its replicas are current.
+     * @param jszReports the {@value #JSZ_STREAMS} json from every server in the cluster
+     * @param stream the stream name
+     * @return true if ready
+     */
+    public static boolean isStreamReady(List<Map<String, Object>> jszReports, String stream) {
+        for (Map<String, Object> jsz : jszReports) {
+            for (Map<String, Object> account : Json.getObjectList(jsz, "account_details")) {
+                for (Map<String, Object> sd : Json.getObjectList(account, "stream_detail")) {
+                    if (stream.equals(Json.getString(sd, "name"))) {
+                        Map<String, Object> cluster = Json.getObject(sd, "cluster");
+                        String leader = Json.getString(cluster, "leader");
+                        long numReplicas = Json.getLong(Json.getObject(sd, "config"), "num_replicas", 1);
+                        List<Map<String, Object>> replicas = Json.getObjectList(cluster, "replicas");
+                        if (leader != null && !leader.isEmpty() && replicas.size() >= numReplicas - 1 && allCurrent(replicas)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean allCurrent(List<Map<String, Object>> replicas) {
+        for (Map<String, Object> replica : replicas) {
+            if (!Json.getBoolean(replica, "current")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The host to use for a node's monitoring endpoint
+     * @param node the node
+     * @return the host
+     */
+    public static String getMonitorHost(ClusterNode node) {
+        return node.host == null ? ClusterUtils.DEFAULT_CLUSTER_DEFAULTS.getHost() : node.host;
+    }
+}
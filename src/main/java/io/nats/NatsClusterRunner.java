@@ -0,0 +1,515 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Runs all the servers of a cluster, starting and shutting them down in parallel
+ */
+public class NatsClusterRunner implements AutoCloseable {
+    public static final long DEFAULT_START_TIMEOUT = 30_000;
+
+    private final List<ClusterInsert> _clusterInserts;
+    private final List<NatsServerRunner> _runners;
+    private final boolean _waitForRoutes;
+    private final boolean _waitForJetStream;
+
+    /**
+     * Get a new Builder
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Construct and start a cluster using {@link ClusterUtils#DEFAULT_CLUSTER_DEFAULTS}
+     * @throws IOException thrown when a server config cannot be created
+     */
+    public NatsClusterRunner() throws IOException {
+        this(builder());
+    }
+
+    /**
+     * Construct and start a cluster
+     * @param cd the cluster defaults to create the nodes from
+     * @throws IOException thrown when a server config cannot be created
+     */
+    public NatsClusterRunner(ClusterDefaults cd) throws IOException {
+        this(builder().clusterDefaults(cd));
+    }
+
+    /**
+     * Construct and start a cluster
+     * @param nodes the nodes
+     * @throws IOException thrown when a server config cannot be created
+     */
+    public NatsClusterRunner(List<ClusterNode> nodes) throws IOException {
+        this(builder().nodes(nodes));
+    }
+
+    protected NatsClusterRunner(Builder b) throws IOException {
+        if (b.clusterInserts != null) {
+            _clusterInserts = Collections.unmodifiableList(b.clusterInserts);
+        }
+        else if (b.nodes == null) {
+            ClusterDefaults cd = b.clusterDefaults == null ? ClusterUtils.DEFAULT_CLUSTER_DEFAULTS : b.clusterDefaults;
+            _clusterInserts = Collections.unmodifiableList(ClusterUtils.createClusterInserts(cd, b.jsStoreDirBase));
+        }
+        else {
+            _clusterInserts = Collections.unmodifiableList(ClusterUtils.createClusterInserts(b.nodes));
+        }
+
+        List<NatsServerRunner> runners = new ArrayList<>();
+        for (ClusterInsert ci : _clusterInserts) {
+            NatsServerRunner.Builder rb = NatsServerRunner.builder()
+                .customName(ci.node.serverName)
+                .port(ci.node.port)
+                .configInserts(ci.configInserts);
+            if (b.runnerCustomizer != null) {
+                b.runnerCustomizer.accept(rb);
+            }
+            runners.add(rb.doNotStart().build());
+        }
+        _runners = Collections.unmodifiableList(runners);
+
+        _waitForRoutes = b.waitForRoutes;
+        _waitForJetStream = b.waitForJetStream;
+
+        if (b.autoStart) {
+            start(b.startTimeout);
+        }
+    }
+
+    /**
+     * Start all servers in parallel and wait until every one of them is started,
+     * and if the runner was built to wait for routes, until the route mesh is formed.
+     * If any server fails to start, all servers are shut down.
+     * @param timeoutMillis the maximum time to wait for all servers
+     * @return this runner
+     */
+    public NatsClusterRunner start(long timeoutMillis) {
+        long start = System.currentTimeMillis();
+        startAll(_runners, ClusterUtils.insertPorts(_clusterInserts), timeoutMillis, "Cluster");
+        try {
+            if (_waitForRoutes) {
+                waitForRoutes(Math.max(1, timeoutMillis - (System.currentTimeMillis() - start)));
+            }
+            if (_waitForJetStream) {
+                waitForJetStream(Math.max(1, timeoutMillis - (System.currentTimeMillis() - start)));
+            }
+        }
+        catch (RuntimeException e) {
+            shutdownQuietly(_runners);
+            throw e;
+        }
+        return this;
+    }
+
+    /**
+     * Start the servers in parallel and wait until every one of them is started.
+     * If any server fails to start, all the servers are shut down. With admission control on,
+     * the servers are admitted as a group, all at once, and waiting for admission counts against the timeout.
+     * Servers that could never all be admitted together fail right away.
+     * Once the servers have started, or failed to, any leases this JVM holds on the group's ports are released.
+     * @param runners the servers
+     * @param ports the ports allocated for the group, i.e. node, route, monitor, gateway and leaf ports
+     * @param timeoutMillis the maximum time to wait for all servers
+     * @param what what is being started, used in error messages
+     */
+    static void startAll(List<NatsServerRunner> runners, Set<Integer> ports, long timeoutMillis, String what) {
+        try {
+            startAll(runners, timeoutMillis, what);
+        }
+        finally {
+            PortLeaseUtils.releaseHeld(ports);
+        }
+    }
+
+    private static void startAll(List<NatsServerRunner> runners, long timeoutMillis, String what) {
+        long start = System.currentTimeMillis();
+        if (AdmissionUtils.isEnabled()) {
+            admitAll(runners, timeoutMillis, what);
+        }
+        long remaining = Math.max(1, timeoutMillis - (System.currentTimeMillis() - start));
+        List<CompletableFuture<NatsServerRunner>> futures = new ArrayList<>();
+        for (NatsServerRunner runner : runners) {
+            futures.add(runner.startAsync(remaining));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(remaining, TimeUnit.MILLISECONDS);
+        }
+        catch (ExecutionException e) {
+            settle(futures, timeoutMillis);
+            shutdownQuietly(runners);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new NatsServerStartupException(StartupFailure.UNKNOWN, what + " failed to start.", e.getCause());
+        }
+        catch (TimeoutException e) {
+            settle(futures, timeoutMillis);
+            shutdownQuietly(runners);
+            throw new NatsServerStartupException(StartupFailure.UNKNOWN, what + " did not start within " + timeoutMillis + "ms.", e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shutdownQuietly(runners);
+            throw new NatsServerStartupException(StartupFailure.UNKNOWN, "Interrupted waiting for " + what + " to start.", e);
+        }
+    }
+
+    /**
+     * Get permits for all the servers that are not running yet in one go and hand them to the runners
+     */
+    private static void admitAll(List<NatsServerRunner> runners, long timeoutMillis, String what) {
+        List<NatsServerRunner> pending = new ArrayList<>();
+        List<Long> memories = new ArrayList<>();
+        for (NatsServerRunner runner : runners) {
+            if (!runner.isRunning()) {
+                pending.add(runner);
+                memories.add(AdmissionUtils.estimateMemory(runner.getJsConfig()));
+            }
+        }
+        List<AdmissionUtils.Permit> permits;
+        try {
+            permits = AdmissionUtils.acquireAll(memories, timeoutMillis);
+        }
+        catch (IllegalStateException | IOException e) {
+            throw new NatsServerStartupException(StartupFailure.UNKNOWN, what + " can't be admitted: " + e.getMessage(), e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NatsServerStartupException(StartupFailure.UNKNOWN, "Interrupted waiting for " + what + " to be admitted.", e);
+        }
+        for (int x = 0; x < pending.size(); x++) {
+            pending.get(x).admitted(permits.get(x));
+        }
+    }
+
+    /**
+     * Let starts that are still in flight finish so no process is launched after a shutdown
+     */
+    private static void settle(List<CompletableFuture<NatsServerRunner>> starts, long timeoutMillis) {
+        for (CompletableFuture<NatsServerRunner> f : starts) {
+            try {
+                f.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException | TimeoutException ignore) {
+            }
+        }
+    }
+
+    static CompletableFuture<Void> shutdownAllAsync(List<NatsServerRunner> runners) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (NatsServerRunner runner : runners) {
+            futures.add(runner.shutdownAsync());
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    static void shutdownQuietly(List<NatsServerRunner> runners) {
+        try {
+            shutdownAllAsync(runners).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException ignore) {
+        }
+    }
+
+    /**
+     * Poll the /routez monitoring endpoint of every node until each node has routes to all the other nodes.
+     * All nodes are polled by one task at a time, on the pool for blocking work. Every node must have a monitor port.
+     * @param timeoutMillis the maximum time to wait
+     * @return a future that completes when the mesh is formed
+     */
+    public CompletableFuture<Void> routesReadyAsync(long timeoutMillis) {
+        List<ClusterNode> pending = monitoredNodes(_clusterInserts, "routes");
+        int expected = _clusterInserts.size() - 1;
+        return RunnerScheduler.pollUntil(() -> {
+            pending.removeIf(node -> {
+                try {
+                    return MonitorUtils.getRoutedServerCount(MonitorUtils.getMonitorHost(node), node.monitor) >= expected;
+                }
+                catch (IOException e) {
+                    return false; // not reachable yet, try again next time
+                }
+            });
+            return pending.isEmpty();
+        }, MonitorUtils.DEFAULT_MONITOR_POLL_INTERVAL, timeoutMillis, "cluster routes");
+    }
+
+    /**
+     * Wait (blocking) until each node has routes to all the other nodes. See {@link #routesReadyAsync(long)}
+     * @param timeoutMillis the maximum time to wait
+     * @return this runner
+     */
+    public NatsClusterRunner waitForRoutes(long timeoutMillis) {
+        await(routesReadyAsync(timeoutMillis), "routes");
+        return this;
+    }
+
+    /**
+     * Poll the /jsz monitoring endpoint of every node until the JetStream meta group has a leader
+     * and all peers are current. Every node must have a monitor port.
+     * @param timeoutMillis the maximum time to wait
+     * @return a future that completes when JetStream is ready
+     */
+    public CompletableFuture<Void> jetStreamReadyAsync(long timeoutMillis) {
+        List<ClusterNode> nodes = monitoredNodes(_clusterInserts, "JetStream");
+        return RunnerScheduler.pollUntil(() -> {
+            List<Map<String, Object>> reports = readAll(nodes, MonitorUtils.JSZ);
+            return reports != null && MonitorUtils.isMetaReady(reports, nodes.size());
+        }, MonitorUtils.DEFAULT_MONITOR_POLL_INTERVAL, timeoutMillis, "JetStream meta leader");
+    }
+
+    /**
+     * Wait (blocking) until the JetStream meta group is ready. See {@link #jetStreamReadyAsync(long)}
+     * @param timeoutMillis the maximum time to wait
+     * @return this runner
+     */
+    public NatsClusterRunner waitForJetStream(long timeoutMillis) {
+        await(jetStreamReadyAsync(timeoutMillis), "JetStream");
+        return this;
+    }
+
+    /**
+     * Poll the /jsz monitoring endpoint of every node until the stream has a leader and all its replicas are current.
+     * Every node must have a monitor port.
+     * @param stream the stream name
+     * @param timeoutMillis the maximum time to wait
+     * @return a future that completes when the stream is ready
+     */
+    public CompletableFuture<Void> streamReadyAsync(String stream, long timeoutMillis) {
+        List<ClusterNode> nodes = monitoredNodes(_clusterInserts, "a stream");
+        return RunnerScheduler.pollUntil(() -> {
+            List<Map<String, Object>> reports = readAll(nodes, MonitorUtils.JSZ_STREAMS);
+            return reports != null && MonitorUtils.isStreamReady(reports, stream);
+        }, MonitorUtils.DEFAULT_MONITOR_POLL_INTERVAL, timeoutMillis, "stream " + stream);
+    }
+
+    /**
+     * Wait (blocking) until the stream is ready. See {@link #streamReadyAsync(String, long)}
+     * @param stream the stream name
+     * @param timeoutMillis the maximum time to wait
+     * @return this runner
+     */
+    public NatsClusterRunner waitForStream(String stream, long timeoutMillis) {
+        await(streamReadyAsync(stream, timeoutMillis), "stream " + stream);
+        return this;
+    }
+
+    static List<ClusterNode> monitoredNodes(List<ClusterInsert> clusterInserts, String what) {
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (ClusterInsert ci : clusterInserts) {
+            if (ci.node.monitor == null) {
+                throw new IllegalStateException("Waiting for " + what + " requires a monitor port for every node. " + ci.node.serverName + " does not have one.");
+            }
+            nodes.add(ci.node);
+        }
+        return nodes;
+    }
+
+    static List<Map<String, Object>> readAll(List<ClusterNode> nodes, String endpoint) {
+        List<Map<String, Object>> reports = new ArrayList<>();
+        for (ClusterNode node : nodes) {
+            try {
+                reports.add(MonitorUtils.getMonitorJson(MonitorUtils.getMonitorHost(node), node.monitor, endpoint));
+            }
+            catch (IOException e) {
+                return null; // not reachable yet, try again next time
+            }
+        }
+        return reports;
+    }
+
+    static void await(CompletableFuture<?> future, String what) {
+        try {
+            future.get();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Failed waiting for " + what + ": " + e.getCause().getMessage(), e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + what + ".", e);
+        }
+    }
+
+    /**
+     * Shut down all servers in parallel
+     * @return a future that completes when every server process has exited
+     */
+    public CompletableFuture<Void> shutdownAsync() {
+        return shutdownAllAsync(_runners);
+    }
+
+    /**
+     * Shut down all servers in parallel, waiting (blocking) until they have exited
+     * @throws InterruptedException if the wait was interrupted
+     */
+    public void shutdown() throws InterruptedException {
+        try {
+            shutdownAsync().get();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * For AutoCloseable, calls shutdown() and deletes the routes include file if there is one
+     */
+    @Override
+    public void close() throws Exception {
+        try {
+            shutdown();
+        }
+        finally {
+            ClusterUtils.deleteRoutesIncludeFiles(_clusterInserts);
+        }
+    }
+
+    // ====================================================================================================
+    // Getters
+    // ====================================================================================================
+    public List<NatsServerRunner> getRunners() {
+        return _runners;
+    }
+
+    public NatsServerRunner getRunner(int index) {
+        return _runners.get(index);
+    }
+
+    public List<ClusterInsert> getClusterInserts() {
+        return _clusterInserts;
+    }
+
+    public int size() {
+        return _runners.size();
+    }
+
+    // ====================================================================================================
+    // Builder
+    // ====================================================================================================
+    public static class Builder {
+        ClusterDefaults clusterDefaults;
+        Path jsStoreDirBase;
+        List<ClusterNode> nodes;
+        List<ClusterInsert> clusterInserts;
+        Consumer<NatsServerRunner.Builder> runnerCustomizer;
+        long startTimeout = DEFAULT_START_TIMEOUT;
+        boolean autoStart = true;
+        boolean waitForRoutes = false;
+        boolean waitForJetStream = false;
+
+        public Builder clusterDefaults(ClusterDefaults clusterDefaults) {
+            this.clusterDefaults = clusterDefaults;
+            return this;
+        }
+
+        public Builder jsStoreDirBase(Path jsStoreDirBase) {
+            this.jsStoreDirBase = jsStoreDirBase;
+            return this;
+        }
+
+        /**
+         * Use these nodes instead of creating them from cluster defaults
+         * @param nodes the nodes
+         * @return the builder
+         */
+        public Builder nodes(List<ClusterNode> nodes) {
+            this.nodes = nodes == null || nodes.isEmpty() ? null : nodes;
+            return this;
+        }
+
+        /**
+         * Use these inserts as is instead of creating them from nodes or cluster defaults
+         * @param clusterInserts the inserts
+         * @return the builder
+         */
+        public Builder clusterInserts(List<ClusterInsert> clusterInserts) {
+            this.clusterInserts = clusterInserts == null || clusterInserts.isEmpty() ? null : clusterInserts;
+            return this;
+        }
+
+        /**
+         * Customize each server's builder, for instance to set the output or debug level.
+         * The config inserts for the node are already set when it is called.
+         * @param runnerCustomizer the customizer
+         * @return the builder
+         */
+        public Builder runnerCustomizer(Consumer<NatsServerRunner.Builder> runnerCustomizer) {
+            this.runnerCustomizer = runnerCustomizer;
+            return this;
+        }
+
+        /**
+         * Have start also wait until the route mesh is formed. Requires monitor ports,
+         * for instance by using cluster defaults with {@link ClusterDefaults#monitor(boolean)}
+         * @return the builder
+         */
+        public Builder waitForRoutes() {
+            this.waitForRoutes = true;
+            return this;
+        }
+
+        /**
+         * Have start also wait until the JetStream meta group has a leader and all peers are current.
+         * Requires monitor ports and JetStream enabled on the nodes, for instance by supplying a jsStoreDirBase.
+         * @return the builder
+         */
+        public Builder waitForJetStream() {
+            this.waitForJetStream = true;
+            return this;
+        }
+
+        public Builder startTimeout(long startTimeout) {
+            this.startTimeout = startTimeout;
+            return this;
+        }
+
+        public Builder autoStart(boolean autoStart) {
+            this.autoStart = autoStart;
+            return this;
+        }
+
+        public Builder doNotStart() {
+            this.autoStart = false;
+            return this;
+        }
+
+        public NatsClusterRunner build() throws IOException {
+            return new NatsClusterRunner(this);
+        }
+    }
+}
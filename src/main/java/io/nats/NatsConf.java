@@ -0,0 +1,606 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A parsed server config: blocks, arrays, quoted and bare values, variables, include directives and comments.
+ * Every node remembers where it came from, so after replacing some nodes the config renders with
+ * everything else exactly as it was written.
+ */
+final class NatsConf {
+    private final String source;
+    private final Block root;
+    private int pos;
+
+    private NatsConf(String source) {
+        this.source = source;
+        root = parseBlock(0, (char)0, null);
+    }
+
+    /**
+     * Parse a config
+     * @param text the config text
+     * @return the parsed config
+     * @throws IllegalArgumentException if the text is not valid config
+     */
+    static NatsConf parse(String text) {
+        return new NatsConf(text);
+    }
+
+    static NatsConf parse(List<String> lines) {
+        return parse(String.join("\n", lines));
+    }
+
+    Block getRoot() {
+        return root;
+    }
+
+    /**
+     * Find the entries with a key at any depth, following nested blocks but not arrays, in the order they appear
+     * @param key the key, compared ignoring case like the server does
+     * @return the entries
+     */
+    List<Entry> findAll(String key) {
+        List<Entry> found = new ArrayList<>();
+        findAll(root, key, found);
+        return found;
+    }
+
+    private static void findAll(Block block, String key, List<Entry> found) {
+        for (Entry entry : block.getEntries()) {
+            if (entry.isKey(key)) {
+                found.add(entry);
+            }
+            if (entry.value instanceof Block) {
+                findAll((Block)entry.value, key, found);
+            }
+        }
+    }
+
+    /**
+     * Render the config, with replaced nodes rendered as their replacements
+     * @return the text
+     */
+    String render() {
+        StringBuilder sb = new StringBuilder(source.length() + 256);
+        render(root, sb, Collections.emptySet(), null);
+        return sb.toString();
+    }
+
+    /**
+     * Render the config split at nodes that will be filled in later, i.e. for a template
+     * @param holes the nodes to leave out
+     * @return the text before each hole, in order, then the text after the last one
+     */
+    List<String> renderAround(List<? extends Node> holes) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        render(root, sb, new HashSet<>(holes), parts);
+        parts.add(sb.toString());
+        return parts;
+    }
+
+    List<String> renderLines() {
+        return Arrays.asList(render().split("\r?\n", -1));
+    }
+
+    private void render(Node node, StringBuilder sb, Set<Node> holes, List<String> parts) {
+        if (holes.contains(node)) {
+            parts.add(sb.toString());
+            sb.setLength(0);
+            return;
+        }
+        if (node.replacement != null) {
+            sb.append(node.replacement);
+            return;
+        }
+        int at = node.start;
+        for (Node child : node.children()) {
+            sb.append(source, at, child.start);
+            render(child, sb, holes, parts);
+            at = child.end;
+        }
+        sb.append(source, at, node.end);
+    }
+
+    // ====================================================================================================
+    // Nodes
+    // ====================================================================================================
+    abstract class Node {
+        final int start;
+        int end;
+        String replacement;
+
+        Node(int start) {
+            this.start = start;
+        }
+
+        List<? extends Node> children() {
+            return Collections.emptyList();
+        }
+
+        /**
+         * Replace the node when rendering
+         * @param text the text to render instead, which may span lines
+         */
+        void replace(String text) {
+            replacement = text;
+        }
+
+        /**
+         * The source text of the node, as written
+         * @return the text
+         */
+        String getText() {
+            return source.substring(start, end);
+        }
+
+        /**
+         * The node on one line without whitespace or comments, i.e. for moving an entry into another block
+         * @return the text
+         */
+        String compact() {
+            return replacement == null ? compactText() : replacement;
+        }
+
+        abstract String compactText();
+    }
+
+    abstract class Value extends Node {
+        Value(int start) {
+            super(start);
+        }
+    }
+
+    /**
+     * A string, number, boolean, duration, size or variable reference
+     */
+    final class Scalar extends Value {
+        private final String value;
+        private final boolean quoted;
+
+        private Scalar(int start, int end, String value, boolean quoted) {
+            super(start);
+            this.end = end;
+            this.value = value;
+            this.quoted = quoted;
+        }
+
+        /**
+         * The value, without quotes and with escapes resolved
+         * @return the value
+         */
+        String getValue() {
+            return value;
+        }
+
+        boolean isQuoted() {
+            return quoted;
+        }
+
+        boolean isVariable() {
+            return !quoted && value.startsWith("$");
+        }
+
+        /**
+         * The name of the variable referenced
+         * @return the name or null if this is not a variable reference
+         */
+        String getVariable() {
+            return isVariable() ? value.substring(1) : null;
+        }
+
+        @Override
+        String compactText() {
+            return getText();
+        }
+    }
+
+    final class Block extends Value {
+        private final List<Node> nodes = new ArrayList<>();
+
+        private Block(int start) {
+            super(start);
+        }
+
+        /**
+         * The entries and include directives, in order
+         * @return the nodes
+         */
+        List<Node> getNodes() {
+            return nodes;
+        }
+
+        List<Entry> getEntries() {
+            List<Entry> entries = new ArrayList<>();
+            for (Node node : nodes) {
+                if (node instanceof Entry) {
+                    entries.add((Entry)node);
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * Get an entry by key. Like the server, the last one wins.
+         * @param key the key, compared ignoring case
+         * @return the entry or null if there isn't one
+         */
+        Entry get(String key) {
+            Entry found = null;
+            for (Entry entry : getEntries()) {
+                if (entry.isKey(key)) {
+                    found = entry;
+                }
+            }
+            return found;
+        }
+
+        @Override
+        List<Node> children() {
+            return nodes;
+        }
+
+        @Override
+        String compactText() {
+            StringBuilder sb = new StringBuilder("{");
+            for (Node node : nodes) {
+                if (sb.length() > 1) {
+                    sb.append(',');
+                }
+                sb.append(node.compact());
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    final class Array extends Value {
+        private final List<Value> values = new ArrayList<>();
+
+        private Array(int start) {
+            super(start);
+        }
+
+        List<Value> getValues() {
+            return values;
+        }
+
+        @Override
+        List<Value> children() {
+            return values;
+        }
+
+        @Override
+        String compactText() {
+            StringBuilder sb = new StringBuilder("[");
+            for (Value value : values) {
+                if (sb.length() > 1) {
+                    sb.append(',');
+                }
+                sb.append(value.compact());
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    final class Entry extends Node {
+        private final String key;
+        private final int keyEnd;
+        private final String separator;
+        private final Entry parent;
+        private Value value;
+
+        private Entry(int start, String key, int keyEnd, String separator, Entry parent) {
+            super(start);
+            this.key = key;
+            this.keyEnd = keyEnd;
+            this.separator = separator;
+            this.parent = parent;
+        }
+
+        private void setValue(Value value) {
+            this.value = value;
+            this.end = value.end;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        boolean isKey(String key) {
+            return this.key.equalsIgnoreCase(key);
+        }
+
+        /**
+         * What was between the key and the value, i.e. ": ", " = " or " "
+         * @return the separator
+         */
+        String getSeparator() {
+            return separator;
+        }
+
+        Value getValue() {
+            return value;
+        }
+
+        /**
+         * The entry whose block this entry is in
+         * @return the entry or null for a top level entry
+         */
+        Entry getParent() {
+            return parent;
+        }
+
+        Entry getTopLevel() {
+            Entry top = this;
+            while (top.parent != null) {
+                top = top.parent;
+            }
+            return top;
+        }
+
+        @Override
+        List<Value> children() {
+            return Collections.singletonList(value);
+        }
+
+        @Override
+        String compactText() {
+            String sep = separator.trim();
+            return source.substring(start, keyEnd) + (sep.isEmpty() ? ":" : sep) + value.compact();
+        }
+    }
+
+    final class Include extends Node {
+        private final Scalar path;
+
+        private Include(int start, Scalar path) {
+            super(start);
+            this.path = path;
+            this.end = path.end;
+        }
+
+        /**
+         * The included file, which the server resolves relative to the including file
+         * @return the path as written
+         */
+        String getPath() {
+            return path.getValue();
+        }
+
+        @Override
+        List<Scalar> children() {
+            return Collections.singletonList(path);
+        }
+
+        @Override
+        String compactText() {
+            return "include " + path.compact();
+        }
+    }
+
+    // ====================================================================================================
+    // Parsing
+    // ====================================================================================================
+    private Block parseBlock(int start, char close, Entry owner) {
+        Block block = new Block(start);
+        while (true) {
+            skipTrivia();
+            if (pos == source.length()) {
+                if (close != 0) {
+                    throw error("Unterminated block");
+                }
+                break;
+            }
+            char c = source.charAt(pos);
+            if (c == close) {
+                pos++;
+                break;
+            }
+            if (c == '}' || c == ']') {
+                throw error("Unexpected '" + c + "'");
+            }
+            block.nodes.add(parseEntry(owner));
+        }
+        block.end = pos;
+        return block;
+    }
+
+    private Node parseEntry(Entry owner) {
+        int start = pos;
+        String key;
+        char c = source.charAt(pos);
+        if (c == '"' || c == '\'') {
+            key = parseQuoted().value;
+        }
+        else {
+            while (pos < source.length() && !isKeyEnd(source.charAt(pos))) {
+                pos++;
+            }
+            key = source.substring(start, pos);
+            if (key.isEmpty()) {
+                throw error("Expected a key");
+            }
+        }
+        int keyEnd = pos;
+        skipSpaces();
+        boolean assigned = pos < source.length() && (source.charAt(pos) == ':' || source.charAt(pos) == '=');
+        if (!assigned && pos > keyEnd && key.equals("include") && c != '"' && c != '\'') {
+            if (atValueEnd()) {
+                throw error("Missing include path");
+            }
+            return new Include(start, parseScalar());
+        }
+        if (assigned) {
+            pos++;
+            skipSpaces();
+        }
+        Entry entry = new Entry(start, key, keyEnd, source.substring(keyEnd, pos), owner);
+        if (atValueEnd()) {
+            // an explicit separator with nothing after it is an empty value
+            if (!assigned) {
+                throw error("Missing value for " + key);
+            }
+            entry.setValue(new Scalar(pos, pos, "", false));
+        }
+        else {
+            entry.setValue(parseValue(entry));
+        }
+        return entry;
+    }
+
+    /**
+     * Parse a value
+     * @param entry the entry the value belongs to, which entries in a block value are nested in
+     */
+    private Value parseValue(Entry entry) {
+        char c = source.charAt(pos);
+        if (c == '{') {
+            return parseBlock(pos++, '}', entry);
+        }
+        if (c == '[') {
+            Array array = new Array(pos++);
+            while (true) {
+                skipTrivia();
+                if (pos == source.length()) {
+                    throw error("Unterminated array for " + entry.key);
+                }
+                c = source.charAt(pos);
+                if (c == ']') {
+                    pos++;
+                    break;
+                }
+                if (c == '}') {
+                    throw error("Unexpected '}'");
+                }
+                array.values.add(parseValue(entry));
+            }
+            array.end = pos;
+            return array;
+        }
+        return parseScalar();
+    }
+
+    private Scalar parseScalar() {
+        char c = source.charAt(pos);
+        if (c == '"' || c == '\'') {
+            return parseQuoted();
+        }
+        int start = pos;
+        int end = pos;
+        while (pos < source.length()) {
+            c = source.charAt(pos);
+            if (c == '\n' || c == '\r' || c == ',' || c == ';' || c == '}' || c == ']' || c == '#' || isLineComment()) {
+                break;
+            }
+            pos++;
+            if (!Character.isWhitespace(c)) {
+                end = pos;
+            }
+        }
+        pos = end;
+        return new Scalar(start, end, source.substring(start, end), false);
+    }
+
+    private Scalar parseQuoted() {
+        int start = pos;
+        char quote = source.charAt(pos++);
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos == source.length()) {
+                throw error("Unterminated string");
+            }
+            char c = source.charAt(pos++);
+            if (c == quote) {
+                break;
+            }
+            if (c == '\\' && quote == '"' && pos < source.length()) {
+                char e = source.charAt(pos++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    default: sb.append(e);
+                }
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        return new Scalar(start, pos, sb.toString(), true);
+    }
+
+    /**
+     * Skip whitespace, comments and the commas and semicolons that may end an entry
+     */
+    private void skipTrivia() {
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (c == '#' || isLineComment()) {
+                while (pos < source.length() && source.charAt(pos) != '\n') {
+                    pos++;
+                }
+            }
+            else if (Character.isWhitespace(c) || c == ',' || c == ';') {
+                pos++;
+            }
+            else {
+                return;
+            }
+        }
+    }
+
+    private void skipSpaces() {
+        while (pos < source.length() && (source.charAt(pos) == ' ' || source.charAt(pos) == '\t')) {
+            pos++;
+        }
+    }
+
+    private boolean atValueEnd() {
+        if (pos == source.length()) {
+            return true;
+        }
+        char c = source.charAt(pos);
+        return c == '\n' || c == '\r' || c == ',' || c == ';' || c == '}' || c == ']' || c == '#' || isLineComment();
+    }
+
+    /**
+     * A // comment, but not the // in a url like nats://host
+     */
+    private boolean isLineComment() {
+        return source.startsWith("//", pos) && (pos == 0 || Character.isWhitespace(source.charAt(pos - 1)));
+    }
+
+    private static boolean isKeyEnd(char c) {
+        return Character.isWhitespace(c) || c == ':' || c == '=' || c == '{' || c == '[' || c == ','
+            || c == ';' || c == '}' || c == ']' || c == '#';
+    }
+
+    private IllegalArgumentException error(String message) {
+        int line = 1;
+        for (int i = 0; i < pos && i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return new IllegalArgumentException(message + " on line " + line + ".");
+    }
+}
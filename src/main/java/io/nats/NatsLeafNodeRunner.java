@@ -0,0 +1,323 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import static io.nats.NatsRunnerUtils.nextPort;
+
+/**
+ * Runs a hub and spoke leaf node topology. The hub is a single server or a cluster,
+ * and every leaf server has a remote pointing at the hub's leaf node listeners.
+ * All servers are started and shut down in parallel.
+ */
+public class NatsLeafNodeRunner implements AutoCloseable {
+    public static final String DEFAULT_HUB_NAME = "hub";
+    public static final String DEFAULT_LEAF_NAME_PREFIX = "leaf";
+
+    private final List<NatsServerRunner> _hubRunners;
+    private final List<NatsServerRunner> _leafRunners;
+    private final List<NatsServerRunner> _runners;
+    private final List<ClusterInsert> _hubClusterInserts;
+    private final String _host;
+    private final List<Integer> _hubMonitorPorts;
+    private final List<Integer> _hubLeafPorts;
+    private final boolean _waitForLeaves;
+
+    /**
+     * Get a new Builder
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    protected NatsLeafNodeRunner(Builder b) throws IOException {
+        List<NatsServerRunner> hubRunners = new ArrayList<>();
+        List<Integer> hubMonitorPorts = new ArrayList<>();
+        List<Integer> hubLeafPorts = new ArrayList<>();
+        List<ClusterInsert> hubClusterInserts = new ArrayList<>();
+        if (b.hubCluster == null) {
+            _host = NatsRunnerUtils.getDefaultLocalhostHost().host;
+            int monitor = nextPort();
+            int leafPort = nextPort();
+            List<String> lines = new ArrayList<>();
+            lines.add("server_name=" + DEFAULT_HUB_NAME);
+            lines.add("http: " + monitor);
+            lines.addAll(ClusterUtils.createLeafNodeListenLines(_host, leafPort));
+            hubRunners.add(runnerBuilder(b, DEFAULT_HUB_NAME, null, lines).build());
+            hubMonitorPorts.add(monitor);
+            hubLeafPorts.add(leafPort);
+        }
+        else {
+            _host = b.hubCluster.getHost();
+            hubClusterInserts.addAll(ClusterUtils.createClusterInserts(b.hubCluster));
+            for (ClusterInsert ci : hubClusterInserts) {
+                int leafPort = nextPort();
+                List<String> lines = new ArrayList<>();
+                Collections.addAll(lines, ci.configInserts);
+                lines.addAll(ClusterUtils.createLeafNodeListenLines(_host, leafPort));
+                hubRunners.add(runnerBuilder(b, ci.node.serverName, ci.node.port, lines).build());
+                hubMonitorPorts.add(ci.node.monitor);
+                hubLeafPorts.add(leafPort);
+            }
+        }
+
+        List<String> hubUrls = new ArrayList<>();
+        for (Integer leafPort : hubLeafPorts) {
+            hubUrls.add(NatsRunnerUtils.getUri("nats-leaf", _host, leafPort));
+        }
+        List<NatsServerRunner> leafRunners = new ArrayList<>();
+        for (int x = 0; x < b.leafCount; x++) {
+            String name = b.leafNamePrefix + x;
+            List<String> lines = new ArrayList<>();
+            lines.add("server_name=" + name);
+            lines.addAll(ClusterUtils.createLeafNodeRemoteLines(hubUrls));
+            leafRunners.add(runnerBuilder(b, name, null, lines).build());
+        }
+
+        _hubRunners = Collections.unmodifiableList(hubRunners);
+        _leafRunners = Collections.unmodifiableList(leafRunners);
+        List<NatsServerRunner> runners = new ArrayList<>(hubRunners);
+        runners.addAll(leafRunners);
+        _runners = Collections.unmodifiableList(runners);
+        _hubClusterInserts = Collections.unmodifiableList(hubClusterInserts);
+        _hubMonitorPorts = Collections.unmodifiableList(hubMonitorPorts);
+        _hubLeafPorts = Collections.unmodifiableList(hubLeafPorts);
+        _waitForLeaves = b.waitForLeaves;
+
+        if (b.autoStart) {
+            start(b.startTimeout);
+        }
+    }
+
+    private static NatsServerRunner.Builder runnerBuilder(Builder b, String name, Integer port, List<String> lines) {
+        NatsServerRunner.Builder rb = NatsServerRunner.builder()
+            .customName(name)
+            .port(port)
+            .configInserts(lines);
+        if (b.runnerCustomizer != null) {
+            b.runnerCustomizer.accept(rb);
+        }
+        return rb.doNotStart();
+    }
+
+    /**
+     * Start the hub and leaf servers in parallel and wait until every one of them is started,
+     * and if the runner was built to wait for leaves, until every leaf is connected to the hub.
+     * If any server fails to start, all servers are shut down.
+     * @param timeoutMillis the maximum time to wait for all servers
+     * @return this runner
+     */
+    public NatsLeafNodeRunner start(long timeoutMillis) {
+        long start = System.currentTimeMillis();
+        Set<Integer> ports = ClusterUtils.insertPorts(_hubClusterInserts);
+        ports.addAll(_hubMonitorPorts);
+        ports.addAll(_hubLeafPorts);
+        NatsClusterRunner.startAll(_runners, ports, timeoutMillis, "Leaf node topology");
+        if (_waitForLeaves) {
+            try {
+                waitForLeaves(Math.max(1, timeoutMillis - (System.currentTimeMillis() - start)));
+            }
+            catch (RuntimeException e) {
+                NatsClusterRunner.shutdownQuietly(_runners);
+                throw e;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Poll the /leafz monitoring endpoint of every hub server until the hub has as many
+     * leaf node connections as there are leaf servers. Every hub server must have a monitor port.
+     * @param timeoutMillis the maximum time to wait
+     * @return a future that completes when every leaf is connected
+     */
+    public CompletableFuture<Void> leavesReadyAsync(long timeoutMillis) {
+        for (Integer monitor : _hubMonitorPorts) {
+            if (monitor == null) {
+                throw new IllegalStateException("Waiting for leaves requires a monitor port for every hub server.");
+            }
+        }
+        return RunnerScheduler.pollUntil(() -> {
+            int connected = 0;
+            for (Integer monitor : _hubMonitorPorts) {
+                try {
+                    connected += MonitorUtils.getLeafNodeCount(_host, monitor);
+                }
+                catch (IOException e) {
+                    return false; // not reachable yet, try again next time
+                }
+            }
+            return connected >= _leafRunners.size();
+        }, MonitorUtils.DEFAULT_MONITOR_POLL_INTERVAL, timeoutMillis, "leaf node connections");
+    }
+
+    /**
+     * Wait (blocking) until every leaf is connected to the hub. See {@link #leavesReadyAsync(long)}
+     * @param timeoutMillis the maximum time to wait
+     * @return this runner
+     */
+    public NatsLeafNodeRunner waitForLeaves(long timeoutMillis) {
+        NatsClusterRunner.await(leavesReadyAsync(timeoutMillis), "leaves");
+        return this;
+    }
+
+    /**
+     * Shut down all servers in parallel
+     * @return a future that completes when every server process has exited
+     */
+    public CompletableFuture<Void> shutdownAsync() {
+        return NatsClusterRunner.shutdownAllAsync(_runners);
+    }
+
+    /**
+     * Shut down all servers in parallel, waiting (blocking) until they have exited
+     * @throws InterruptedException if the wait was interrupted
+     */
+    public void shutdown() throws InterruptedException {
+        try {
+            shutdownAsync().get();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * For AutoCloseable, calls shutdown() and deletes the hub cluster's routes include file if there is one
+     */
+    @Override
+    public void close() throws Exception {
+        try {
+            shutdown();
+        }
+        finally {
+            ClusterUtils.deleteRoutesIncludeFiles(_hubClusterInserts);
+        }
+    }
+
+    // ====================================================================================================
+    // Getters
+    // ====================================================================================================
+    public List<NatsServerRunner> getHubRunners() {
+        return _hubRunners;
+    }
+
+    public NatsServerRunner getHub() {
+        return _hubRunners.get(0);
+    }
+
+    public List<NatsServerRunner> getLeafRunners() {
+        return _leafRunners;
+    }
+
+    public NatsServerRunner getLeaf(int index) {
+        return _leafRunners.get(index);
+    }
+
+    /**
+     * Get the inserts the hub cluster's servers were created with
+     * @return the inserts, empty if the hub is a single server
+     */
+    public List<ClusterInsert> getHubClusterInserts() {
+        return _hubClusterInserts;
+    }
+
+    public List<Integer> getHubLeafPorts() {
+        return _hubLeafPorts;
+    }
+
+    public List<NatsServerRunner> getRunners() {
+        return _runners;
+    }
+
+    // ====================================================================================================
+    // Builder
+    // ====================================================================================================
+    public static class Builder {
+        ClusterDefaults hubCluster;
+        int leafCount = 1;
+        String leafNamePrefix = DEFAULT_LEAF_NAME_PREFIX;
+        Consumer<NatsServerRunner.Builder> runnerCustomizer;
+        long startTimeout = NatsClusterRunner.DEFAULT_START_TIMEOUT;
+        boolean autoStart = true;
+        boolean waitForLeaves = false;
+
+        /**
+         * Use a cluster as the hub instead of a single server. Waiting for leaves requires the cluster to have monitor ports.
+         * @param hubCluster the cluster defaults for the hub
+         * @return the builder
+         */
+        public Builder hubCluster(ClusterDefaults hubCluster) {
+            this.hubCluster = hubCluster;
+            return this;
+        }
+
+        public Builder leafCount(int leafCount) {
+            this.leafCount = leafCount;
+            return this;
+        }
+
+        public Builder leafNamePrefix(String leafNamePrefix) {
+            this.leafNamePrefix = leafNamePrefix;
+            return this;
+        }
+
+        /**
+         * Customize each server's builder, hub and leaves
+         * @param runnerCustomizer the customizer
+         * @return the builder
+         */
+        public Builder runnerCustomizer(Consumer<NatsServerRunner.Builder> runnerCustomizer) {
+            this.runnerCustomizer = runnerCustomizer;
+            return this;
+        }
+
+        /**
+         * Wait for every leaf to be connected to the hub when starting
+         * @return the builder
+         */
+        public Builder waitForLeaves() {
+            this.waitForLeaves = true;
+            return this;
+        }
+
+        public Builder startTimeout(long startTimeout) {
+            this.startTimeout = startTimeout;
+            return this;
+        }
+
+        public Builder autoStart(boolean autoStart) {
+            this.autoStart = autoStart;
+            return this;
+        }
+
+        public Builder doNotStart() {
+            this.autoStart = false;
+            return this;
+        }
+
+        public NatsLeafNodeRunner build() throws IOException {
+            return new NatsLeafNodeRunner(this);
+        }
+    }
+}
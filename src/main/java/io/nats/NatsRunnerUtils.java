@@ -14,6 +14,7 @@
 package io.nats;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
@@ -30,13 +31,18 @@ public abstract class NatsRunnerUtils {
 
     public static final String CONF_FILE_PREFIX = "nats_java_test";
     public static final String CONF_FILE_EXT = ".conf";
+    /** @deprecated config files are parsed, port entries are no longer found by matching lines */
+    @Deprecated
     public static final String PORT_REGEX = "port:\\s*(\\d+)";
+    /** @deprecated config files are parsed, port entries are no longer found by matching lines */
+    @Deprecated
     public static final String PORT_MAPPED_REGEX = "port:\\s*<(\\w+)>";
     public static final String PORT_PROPERTY = "port: ";
     public static final String CONFIG_PORT_KEY = "config_port";
     public static final String USER_PORT_KEY = "user_port";
     public static final String NATS_PORT_KEY = "nats_port";
     public static final String NON_NATS_PORT_KEY = "non_nats_port";
+    public static final int RANDOM_PORT = -1;
 
     public enum LocalHost {
         name("localhost"), ip("127.0.0.1"), unspecified("0.0.0.0");
@@ -48,12 +54,18 @@ public abstract class NatsRunnerUtils {
     protected static Supplier<Output> DefaultOutputSupplier = DefaultLoggingSupplier;
     protected static Level DefaultOutputLevel = Level.INFO;
     protected static String PreferredServerPath = null;
+    protected static int DefaultProcessStartTries = 3;
+    protected static long DefaultProcessStartRetryDelay = 100;
     protected static long DefaultProcessAliveCheckWait = 100;
     protected static int DefaultProcessAliveCheckTries = 10;
     protected static int DefaultConnectValidateTries = 3;
     protected static long DefaultConnectValidateTimeout = 100;
+    protected static boolean DefaultConnectValidateProtocol = false;
     protected static OutputThreadProvider DefaultOutputThreadProvider = new OutputThreadProvider() {};
     protected static Integer ManualStartPort = null;
+    protected static int ManualPortBlockSize = 1;
+    protected static boolean DefaultPortLeasing = false;
+    protected static JsStoreLocation DefaultJsStoreLocation = JsStoreLocation.DISK;
     protected static LocalHost DefaultLocalhostHost;
 
     static {
@@ -105,15 +117,27 @@ public abstract class NatsRunnerUtils {
         return schema + "://" + host + ":" + port;
     }
 
-    static AtomicInteger NEXT_PORT;
+    public static final int MAX_PORT = 65535;
+
+    // 0 until the first manual port is claimed, then the last port claimed
+    static final AtomicInteger NEXT_PORT = new AtomicInteger();
+    // bumped when the manual start port changes so thread blocks from the old start are discarded
+    static final AtomicInteger MANUAL_PORT_GENERATION = new AtomicInteger();
+    private static final ThreadLocal<int[]> MANUAL_PORT_BLOCK = new ThreadLocal<>();
 
     /**
      * Get a port number automatically allocated by the system, typically from an ephemeral port range.
+     * If port leasing is on, the port is leased through {@link PortLeaseUtils}.
+     * If a manual start port is set, ports are handed out in order from it, skipping any that are in use.
      * @return the port number
      * @throws IOException if there is a problem getting a port
      */
     public static int nextPort() throws IOException {
-        if (ManualStartPort == null || ManualStartPort < 1) {
+        Integer manualStartPort = ManualStartPort;
+        if (manualStartPort == null || manualStartPort < 1) {
+            if (DefaultPortLeasing) {
+                return PortLeaseUtils.lease();
+            }
             try (ServerSocket socket = new ServerSocket(0)) {
                 while (!socket.isBound()) {
                     //noinspection BusyWait
@@ -126,12 +150,52 @@ public abstract class NatsRunnerUtils {
                 throw new IOException("Thread interrupted", e);
             }
         }
-        else if (NEXT_PORT == null) {
-            NEXT_PORT = new AtomicInteger(ManualStartPort);
-            return ManualStartPort;
+        while (true) {
+            int port = ManualPortBlockSize > 1 ? claimFromBlock(manualStartPort) : claimManualPorts(manualStartPort, 1);
+            if (port > MAX_PORT) {
+                throw new IOException("Manual ports starting at " + manualStartPort + " are exhausted.");
+            }
+            if (isPortAvailable(port)) {
+                return port;
+            }
         }
-        else {
-            return NEXT_PORT.incrementAndGet();
+    }
+
+    /**
+     * Claim a run of consecutive manual ports without locking
+     * @return the first port of the run
+     */
+    private static int claimManualPorts(int start, int count) {
+        int last = NEXT_PORT.updateAndGet(current -> current < start ? start + count - 1 : current + count);
+        return last - count + 1;
+    }
+
+    private static int claimFromBlock(int start) {
+        // block is [next, end, generation], only ever touched by its own thread
+        int generation = MANUAL_PORT_GENERATION.get();
+        int[] block = MANUAL_PORT_BLOCK.get();
+        if (block == null || block[0] > block[1] || block[2] != generation) {
+            int size = ManualPortBlockSize;
+            int first = claimManualPorts(start, size);
+            block = new int[] {first, first + size - 1, generation};
+            MANUAL_PORT_BLOCK.set(block);
+        }
+        return block[0]++;
+    }
+
+    /**
+     * Whether a port can currently be bound on all interfaces
+     * @param port the port
+     * @return true if the port is free
+     */
+    public static boolean isPortAvailable(int port) {
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.setReuseAddress(false);
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        }
+        catch (IOException e) {
+            return false;
         }
     }
 
@@ -183,6 +247,27 @@ public abstract class NatsRunnerUtils {
         PreferredServerPath = null;
     }
 
+    public static int getDefaultProcessStartTries() {
+        return DefaultProcessStartTries;
+    }
+
+    /**
+     * Set how many times the server is started when it fails because a port it was
+     * automatically given is in use. Each retry gets fresh ports.
+     * @param tries the number of tries, 1 for no retry
+     */
+    public static void setDefaultProcessStartTries(int tries) {
+        DefaultProcessStartTries = tries;
+    }
+
+    public static long getDefaultProcessStartRetryDelay() {
+        return DefaultProcessStartRetryDelay;
+    }
+
+    public static void setDefaultProcessStartRetryDelay(long delay) {
+        DefaultProcessStartRetryDelay = delay;
+    }
+
     public static int getDefaultProcessAliveCheckTries() {
         return DefaultProcessAliveCheckTries;
     }
@@ -215,6 +300,19 @@ public abstract class NatsRunnerUtils {
         DefaultConnectValidateTimeout = delay;
     }
 
+    public static boolean getDefaultConnectValidateProtocol() {
+        return DefaultConnectValidateProtocol;
+    }
+
+    /**
+     * Set whether connect validation does a full protocol round trip (INFO, CONNECT, PING, PONG)
+     * instead of just opening a socket.
+     * @param protocol true to validate with a protocol round trip
+     */
+    public static void setDefaultConnectValidateProtocol(boolean protocol) {
+        DefaultConnectValidateProtocol = protocol;
+    }
+
     public static void setDefaultOutputThreadProvider(OutputThreadProvider defaultOutputThreadProvider) {
         DefaultOutputThreadProvider = defaultOutputThreadProvider == null ? new OutputThreadProvider() {} : defaultOutputThreadProvider;
     }
@@ -225,6 +323,59 @@ public abstract class NatsRunnerUtils {
 
     public static void setManualStartPort(Integer manualStartPort) {
         ManualStartPort = manualStartPort;
+        NEXT_PORT.set(0);
+        MANUAL_PORT_GENERATION.incrementAndGet();
+    }
+
+    public static int getManualPortBlockSize() {
+        return ManualPortBlockSize;
+    }
+
+    /**
+     * Set how many manual ports a thread claims at once. Threads then hand out ports from their own block,
+     * which keeps contention down when many threads allocate at the same time, at the cost of ports
+     * not being handed out strictly in order. 1, the default, claims one port at a time.
+     * @param blockSize the block size
+     */
+    public static void setManualPortBlockSize(int blockSize) {
+        ManualPortBlockSize = Math.max(1, blockSize);
+        MANUAL_PORT_GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Whether {@link #nextPort()} currently leases the ports it hands out
+     * @return true if it does
+     */
+    static boolean isLeasingPorts() {
+        Integer manualStartPort = ManualStartPort;
+        return DefaultPortLeasing && (manualStartPort == null || manualStartPort < 1);
+    }
+
+    public static boolean isDefaultPortLeasing() {
+        return DefaultPortLeasing;
+    }
+
+    /**
+     * Set whether automatically allocated ports are leased through {@link PortLeaseUtils} so that
+     * threads and other JVMs sharing the lease file never get the same port before the server binds it.
+     * Does not apply when a manual start port is set.
+     * @param portLeasing true to lease ports
+     */
+    public static void setDefaultPortLeasing(boolean portLeasing) {
+        DefaultPortLeasing = portLeasing;
+    }
+
+    public static JsStoreLocation getDefaultJsStoreLocation() {
+        return DefaultJsStoreLocation;
+    }
+
+    /**
+     * Set where JetStream store directories are created when neither the builder nor the JsConfig says.
+     * See {@link JsStoreUtils} for how RAM store directories are budgeted.
+     * @param jsStoreLocation the location, null for disk
+     */
+    public static void setDefaultJsStoreLocation(JsStoreLocation jsStoreLocation) {
+        DefaultJsStoreLocation = jsStoreLocation == null ? JsStoreLocation.DISK : jsStoreLocation;
     }
 
     public static LocalHost getDefaultLocalhostHost() {
@@ -0,0 +1,360 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shares one server between everyone asking for the same spec. Servers are reference counted,
+ * the server is shut down when the last holder closes its handle, optionally after a linger time
+ * during which a new holder gets the same server. Holders must not shut the shared server down themselves.
+ */
+public class NatsServerCache {
+    public static final long DEFAULT_LINGER = 0;
+
+    private static final NatsServerCache DEFAULT = new NatsServerCache();
+
+    private final long _linger;
+    private final Map<Spec, Entry> _entries = new HashMap<>(); // guarded by this
+
+    private static class Entry {
+        final CompletableFuture<NatsServerRunner> runner = new CompletableFuture<>();
+        int refs;
+        ScheduledFuture<?> lingerTask;
+    }
+
+    /**
+     * Get the JVM wide cache, which does not linger
+     * @return the cache
+     */
+    public static NatsServerCache getDefault() {
+        return DEFAULT;
+    }
+
+    public NatsServerCache() {
+        this(DEFAULT_LINGER);
+    }
+
+    /**
+     * Construct a cache
+     * @param linger how long to keep a server running after its last holder closes, 0 to shut it down right away
+     */
+    public NatsServerCache(long linger) {
+        _linger = linger;
+    }
+
+    /**
+     * Get a handle to the shared server for the builder's spec, starting it if needed.
+     * Concurrent callers with the same spec wait for the same start. The server is built from a copy
+     * of the builder taken now, so the builder can be changed or reused afterwards. Output settings
+     * are not part of the spec, a shared server keeps the output of the caller that started it.
+     * @param builder the builder
+     * @return the handle
+     * @throws IOException if the server could not be started
+     */
+    public Handle acquire(NatsServerRunner.Builder builder) throws IOException {
+        NatsServerRunner.Builder copy = builder.copy().autoStart(true);
+        Spec spec = Spec.of(copy);
+        Entry entry;
+        boolean create = false;
+        synchronized (this) {
+            entry = _entries.get(spec);
+            if (entry == null) {
+                entry = new Entry();
+                _entries.put(spec, entry);
+                create = true;
+            }
+            entry.refs++;
+            if (entry.lingerTask != null) {
+                entry.lingerTask.cancel(false);
+                entry.lingerTask = null;
+            }
+        }
+
+        if (create) {
+            try {
+                entry.runner.complete(copy.build());
+            }
+            catch (Throwable t) {
+                synchronized (this) {
+                    _entries.remove(spec, entry);
+                }
+                entry.runner.completeExceptionally(t);
+            }
+        }
+
+        try {
+            return new Handle(spec, entry, entry.runner.get());
+        }
+        catch (ExecutionException e) {
+            synchronized (this) {
+                entry.refs--;
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(spec, entry);
+            throw new IOException("Interrupted waiting for a shared server.", e);
+        }
+    }
+
+    /**
+     * Get a handle to the shared server for the options' spec, starting it if needed
+     * @param options the options
+     * @return the handle
+     * @throws IOException if the server could not be started
+     */
+    public Handle acquire(NatsServerRunnerOptions options) throws IOException {
+        return acquire(NatsServerRunner.builder().runnerOptions(options));
+    }
+
+    private synchronized void release(Spec spec, Entry entry) {
+        if (--entry.refs > 0) {
+            return;
+        }
+        if (_linger <= 0) {
+            shutdownEntry(spec, entry);
+        }
+        else {
+            entry.lingerTask = RunnerScheduler.get().schedule(() -> {
+                synchronized (this) {
+                    if (entry.refs == 0) {
+                        shutdownEntry(spec, entry);
+                    }
+                }
+            }, _linger, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void shutdownEntry(Spec spec, Entry entry) {
+        if (_entries.remove(spec, entry)) {
+            entry.runner.thenAccept(NatsServerRunner::shutdownAsync);
+        }
+    }
+
+    /**
+     * Shut down every server in the cache whether or not it still has holders
+     * @return a future that completes when every server process has exited
+     */
+    public CompletableFuture<Void> shutdownAsync() {
+        List<NatsServerRunner> runners = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : _entries.values()) {
+                if (entry.lingerTask != null) {
+                    entry.lingerTask.cancel(false);
+                }
+                NatsServerRunner runner = entry.runner.getNow(null);
+                if (runner != null) {
+                    runners.add(runner);
+                }
+            }
+            _entries.clear();
+        }
+        return NatsClusterRunner.shutdownAllAsync(runners);
+    }
+
+    /**
+     * The number of servers in the cache, including ones that are lingering
+     * @return the number of servers
+     */
+    public synchronized int size() {
+        return _entries.size();
+    }
+
+    /**
+     * A holder's reference to a shared server. Closing it releases the reference.
+     */
+    public class Handle implements AutoCloseable {
+        private final Spec spec;
+        private final Entry entry;
+        private final NatsServerRunner runner;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Handle(Spec spec, Entry entry, NatsServerRunner runner) {
+            this.spec = spec;
+            this.entry = entry;
+            this.runner = runner;
+        }
+
+        public NatsServerRunner getRunner() {
+            return runner;
+        }
+
+        public Spec getSpec() {
+            return spec;
+        }
+
+        /**
+         * Release this holder's reference. Closing more than once does nothing.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(spec, entry);
+            }
+        }
+    }
+
+    /**
+     * The canonical form of the builder settings that determine what server is started and how.
+     * Output settings are not part of the spec.
+     */
+    public static final class Spec {
+        private final Map<String, Integer> ports;
+        private final boolean randomPorts;
+        private final DebugLevel debugLevel;
+        private final boolean jetStream;
+        private final Path jsStoreDir;
+        private final JsStoreLocation jsStoreLocation;
+        private final String jsConfig;
+        private final Path configFilePath;
+        private final List<String> configInserts;
+        private final List<String> customArgs;
+        private final String executablePath;
+        private final String customName;
+        private final boolean allowCommandLineOnly;
+        private final List<Object> startSettings;
+
+        private Spec(NatsServerRunner.Builder b) {
+            Map<String, Integer> p = new TreeMap<>(b.ports);
+            Integer port = p.get(NatsRunnerUtils.CONFIG_PORT_KEY);
+            if (port != null && port < 1) {
+                p.remove(NatsRunnerUtils.CONFIG_PORT_KEY); // any free port, same as not set
+            }
+            ports = Collections.unmodifiableMap(p);
+            randomPorts = b.randomPorts;
+            debugLevel = b.debugLevel;
+            jetStream = b.jetstream;
+            jsStoreDir = absolute(b.jsStoreDir);
+            jsStoreLocation = b.jsStoreLocation;
+            jsConfig = canonical(b.jsConfig);
+            configFilePath = absolute(b.configFilePath);
+            configInserts = canonical(b.configInserts);
+            customArgs = canonical(b.customArgs);
+            executablePath = b.executablePath == null ? NatsRunnerUtils.getResolvedServerPath() : b.executablePath.toString();
+            customName = b.customName;
+            allowCommandLineOnly = b.allowCommandLineOnly;
+            startSettings = Arrays.asList(b.startTries, b.startRetryDelay, b.aliveCheckWait, b.aliveCheckTries,
+                b.connectValidateTries, b.connectValidateTimeout, b.connectValidateProtocol);
+        }
+
+        public static Spec of(NatsServerRunner.Builder builder) {
+            return new Spec(builder);
+        }
+
+        public static Spec of(NatsServerRunnerOptions options) {
+            return new Spec(NatsServerRunner.builder().runnerOptions(options));
+        }
+
+        private static Path absolute(Path path) {
+            return path == null ? null : path.toAbsolutePath().normalize();
+        }
+
+        private static List<String> canonical(List<String> lines) {
+            if (lines == null) {
+                return Collections.emptyList();
+            }
+            List<String> trimmed = new ArrayList<>();
+            for (String line : lines) {
+                String t = line.trim();
+                if (!t.isEmpty()) {
+                    trimmed.add(t);
+                }
+            }
+            return Collections.unmodifiableList(trimmed);
+        }
+
+        private static String canonical(JsConfig.Builder jsConfig) {
+            if (jsConfig == null) {
+                return null;
+            }
+            return "storeDir=" + absolute(jsConfig.storeDir)
+                + ", storeLocation=" + jsConfig.storeLocation
+                + ", block=" + (jsConfig.block == null ? null : jsConfig.block.compact())
+                + ", options=" + jsConfig.options;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Spec)) {
+                return false;
+            }
+            Spec spec = (Spec) o;
+            return randomPorts == spec.randomPorts
+                && jetStream == spec.jetStream
+                && allowCommandLineOnly == spec.allowCommandLineOnly
+                && ports.equals(spec.ports)
+                && debugLevel == spec.debugLevel
+                && Objects.equals(jsStoreDir, spec.jsStoreDir)
+                && jsStoreLocation == spec.jsStoreLocation
+                && Objects.equals(jsConfig, spec.jsConfig)
+                && Objects.equals(configFilePath, spec.configFilePath)
+                && configInserts.equals(spec.configInserts)
+                && customArgs.equals(spec.customArgs)
+                && executablePath.equals(spec.executablePath)
+                && Objects.equals(customName, spec.customName)
+                && startSettings.equals(spec.startSettings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ports, randomPorts, debugLevel, jetStream, jsStoreDir, jsStoreLocation, jsConfig,
+                configFilePath, configInserts, customArgs, executablePath, customName, allowCommandLineOnly, startSettings);
+        }
+
+        @Override
+        public String toString() {
+            return "Spec{" +
+                "ports=" + ports +
+                ", randomPorts=" + randomPorts +
+                ", debugLevel=" + debugLevel +
+                ", jetStream=" + jetStream +
+                ", jsStoreDir=" + jsStoreDir +
+                ", jsStoreLocation=" + jsStoreLocation +
+                ", jsConfig=" + jsConfig +
+                ", configFilePath=" + configFilePath +
+                ", configInserts=" + configInserts +
+                ", customArgs=" + customArgs +
+                ", executablePath='" + executablePath + '\'' +
+                ", customName=" + customName +
+                ", allowCommandLineOnly=" + allowCommandLineOnly +
+                ", startSettings=" + startSettings +
+                '}';
+        }
+    }
+}
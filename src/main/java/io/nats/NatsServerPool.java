@@ -0,0 +1,333 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps servers started in the background and leases them out, so tests don't wait for a server to start.
+ * A released server has been used, so it is shut down and a fresh one is started in its place.
+ * The pool always keeps its size ready. Servers started beyond it to cover a burst of leases are shut down
+ * once they sit idle longer than the idle timeout. Idle servers whose process has died are replaced.
+ */
+public class NatsServerPool implements AutoCloseable {
+    public static final int DEFAULT_SIZE = 2;
+    public static final int DEFAULT_MAX_SIZE = 16;
+    public static final long DEFAULT_IDLE_TIMEOUT = 60_000;
+    public static final long DEFAULT_LEASE_TIMEOUT = 30_000;
+
+    private final Supplier<NatsServerRunner.Builder> _runnerBuilder;
+    private final int _size;
+    private final int _maxSize;
+    private final long _idleTimeout;
+    private final long _leaseTimeout;
+
+    // guarded by this
+    private final Deque<Idle> _idle = new ArrayDeque<>();
+    private final Set<NatsServerRunner> _leased = new HashSet<>();
+    private int _starting;
+    private int _waiting;
+    private Throwable _startFailure;
+    private boolean _closed;
+
+    private final ScheduledFuture<?> _evictor;
+
+    private static class Idle {
+        final NatsServerRunner runner;
+        final long since;
+
+        Idle(NatsServerRunner runner) {
+            this.runner = runner;
+            this.since = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Get a new Builder
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    protected NatsServerPool(Builder b) {
+        _runnerBuilder = b.runnerBuilder;
+        _size = b.size;
+        _maxSize = Math.max(1, Math.max(b.size, b.maxSize));
+        _idleTimeout = b.idleTimeout;
+        _leaseTimeout = b.leaseTimeout;
+        long evictEvery = Math.max(MonitorUtils.DEFAULT_MONITOR_POLL_INTERVAL, _idleTimeout / 2);
+        _evictor = RunnerScheduler.get().scheduleWithFixedDelay(this::evictIdle, evictEvery, evictEvery, TimeUnit.MILLISECONDS);
+        synchronized (this) {
+            fill();
+        }
+    }
+
+    /**
+     * Lease a started server, waiting up to the pool's lease timeout for one
+     * @return the server
+     */
+    public NatsServerRunner lease() {
+        return lease(_leaseTimeout);
+    }
+
+    /**
+     * Lease a started server. If none is ready, one is started if the pool is not at its max size,
+     * otherwise this waits for a leased server to be released.
+     * @param timeoutMillis the maximum time to wait
+     * @return the server
+     * @throws IllegalStateException if no server is available in time or the pool is closed
+     * @throws NatsServerStartupException if the server started for this lease failed to start
+     */
+    public synchronized NatsServerRunner lease(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            if (_closed) {
+                throw new IllegalStateException("Pool is closed.");
+            }
+            Idle idle = _idle.pollLast(); // most recently started, leaving older ones to be evicted
+            if (idle != null) {
+                if (!idle.runner.isRunning()) {
+                    idle.runner.shutdownAsync(); // died while idle, start a replacement and look again
+                    fill();
+                    continue;
+                }
+                _leased.add(idle.runner);
+                fill();
+                return idle.runner;
+            }
+            if (_startFailure != null && _starting == 0) {
+                Throwable t = _startFailure;
+                _startFailure = null;
+                throw t instanceof NatsServerStartupException
+                    ? (NatsServerStartupException)t
+                    : new NatsServerStartupException(StartupFailure.UNKNOWN, "Pool could not start a server.", t);
+            }
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                throw new IllegalStateException("No server available within " + timeoutMillis + "ms.");
+            }
+            _waiting++;
+            try {
+                fill();
+                wait(wait);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a server.", e);
+            }
+            finally {
+                _waiting--;
+            }
+        }
+    }
+
+    /**
+     * Return a leased server. It is shut down and replaced with a fresh one in the background.
+     * Releasing a server that is not leased from this pool does nothing.
+     * @param runner the server
+     */
+    public synchronized void release(NatsServerRunner runner) {
+        if (_leased.remove(runner)) {
+            runner.shutdownAsync();
+            fill();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Start servers until there are enough idle or starting to cover the pool size and anyone waiting,
+     * without going over the max size.
+     */
+    private void fill() {
+        while (!_closed
+            && _idle.size() + _starting < Math.max(_size, _waiting)
+            && _idle.size() + _starting + _leased.size() < _maxSize)
+        {
+            _starting++;
+            RunnerScheduler.blocking().execute(() -> {
+                try {
+                    _runnerBuilder.get().doNotStart().build().startAsync().whenComplete(this::started);
+                }
+                catch (Throwable t) {
+                    started(null, t);
+                }
+            });
+        }
+    }
+
+    private synchronized void started(NatsServerRunner runner, Throwable t) {
+        _starting--;
+        if (t != null) {
+            _startFailure = t;
+        }
+        else if (_closed) {
+            runner.shutdownAsync();
+        }
+        else {
+            _idle.addLast(new Idle(runner));
+        }
+        notifyAll();
+    }
+
+    /**
+     * Replace idle servers that died, and shut down the oldest idle servers above the pool size
+     * once they have been idle longer than the idle timeout
+     */
+    private synchronized void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<Idle> iterator = _idle.iterator(); // oldest first
+        while (iterator.hasNext()) {
+            Idle idle = iterator.next();
+            boolean surplus = _idle.size() > _size && now - idle.since >= _idleTimeout;
+            if (surplus || !idle.runner.isRunning()) {
+                iterator.remove();
+                idle.runner.shutdownAsync();
+            }
+        }
+        fill();
+    }
+
+    /**
+     * Shut down every server, idle and leased, in parallel
+     * @return a future that completes when every server process has exited
+     */
+    public CompletableFuture<Void> shutdownAsync() {
+        List<NatsServerRunner> runners = new ArrayList<>();
+        synchronized (this) {
+            _closed = true;
+            _evictor.cancel(false);
+            for (Idle idle : _idle) {
+                runners.add(idle.runner);
+            }
+            runners.addAll(_leased);
+            _idle.clear();
+            _leased.clear();
+            notifyAll();
+        }
+        return NatsClusterRunner.shutdownAllAsync(runners);
+    }
+
+    /**
+     * Shut down every server, waiting (blocking) until they have exited.
+     * Servers still starting are shut down as soon as they are started.
+     * @throws InterruptedException if the wait was interrupted
+     */
+    public void shutdown() throws InterruptedException {
+        try {
+            shutdownAsync().get();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * For AutoCloseable, calls shutdown().
+     */
+    @Override
+    public void close() throws Exception {
+        shutdown();
+    }
+
+    // ====================================================================================================
+    // Getters
+    // ====================================================================================================
+    public synchronized int getIdleCount() {
+        return _idle.size();
+    }
+
+    public synchronized int getLeasedCount() {
+        return _leased.size();
+    }
+
+    public synchronized int getStartingCount() {
+        return _starting;
+    }
+
+    public int getSize() {
+        return _size;
+    }
+
+    public int getMaxSize() {
+        return _maxSize;
+    }
+
+    // ====================================================================================================
+    // Builder
+    // ====================================================================================================
+    public static class Builder {
+        Supplier<NatsServerRunner.Builder> runnerBuilder = NatsServerRunner::builder;
+        int size = DEFAULT_SIZE;
+        int maxSize = DEFAULT_MAX_SIZE;
+        long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        long leaseTimeout = DEFAULT_LEASE_TIMEOUT;
+
+        /**
+         * Supply a new builder for every server the pool starts. A builder must not be shared
+         * since the runner it builds keeps its port map.
+         * @param runnerBuilder the builder supplier
+         * @return the builder
+         */
+        public Builder runnerBuilder(Supplier<NatsServerRunner.Builder> runnerBuilder) {
+            this.runnerBuilder = runnerBuilder == null ? NatsServerRunner::builder : runnerBuilder;
+            return this;
+        }
+
+        /**
+         * The number of servers to keep started and ready to lease
+         * @param size the size
+         * @return the builder
+         */
+        public Builder size(int size) {
+            this.size = Math.max(0, size);
+            return this;
+        }
+
+        /**
+         * The maximum number of servers, idle, starting and leased, running at once
+         * @param maxSize the max size
+         * @return the builder
+         */
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder idleTimeout(long idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public Builder leaseTimeout(long leaseTimeout) {
+            this.leaseTimeout = leaseTimeout;
+            return this;
+        }
+
+        public NatsServerPool build() {
+            return new NatsServerPool(this);
+        }
+    }
+}
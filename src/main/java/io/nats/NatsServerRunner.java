@@ -20,10 +20,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static io.nats.NatsRunnerUtils.*;
@@ -33,21 +35,41 @@ import static io.nats.NatsRunnerUtils.*;
  */
 public class NatsServerRunner implements AutoCloseable {
 
-    private static final byte[] CONNECT_BYTES = "CONNECT {\"lang\":\"java\",\"version\":\"9.99.9\",\"protocol\":1,\"verbose\":false,\"pedantic\":false,\"tls_required\":false,\"echo\":true,\"headers\":true,\"no_responders\":true}\r\n".getBytes();
+    static final byte[] CONNECT_BYTES = "CONNECT {\"lang\":\"java\",\"version\":\"9.99.9\",\"protocol\":1,\"verbose\":false,\"pedantic\":false,\"tls_required\":false,\"echo\":true,\"headers\":true,\"no_responders\":true}\r\n".getBytes();
+    private static final long JS_API_TIMEOUT = 5000;
+    private static final long CONNECT_VALIDATE_BACKOFF = 10;
+    private static final long CONNECT_VALIDATE_MAX_BACKOFF = 500;
     private static final String ERROR_NOTE_PART_1 = "Make sure that the nats-server is installed and in your PATH.";
+    static final String CLIENT_LISTENER = "client";
+    // listener (the config block) for each line the server logs when it starts listening
+    private static final String[][] LISTEN_LINES = {
+        {"Listening for client connections on ", CLIENT_LISTENER},
+        {"Listening for websocket clients on ", "websocket"},
+        {"Listening for MQTT clients on ", "mqtt"},
+        {"Listening for leafnode connections on ", "leafnodes"},
+        {"Listening for route connections on ", "cluster"},
+        {"Listening for gateway connections on ", "gateway"},
+        {"Starting http monitor on ", "http"},
+    };
     private static final String ERROR_NOTE_PART_2 = "See https://github.com/nats-io/nats-server for information on installation";
 
     private final String _executablePath;
     private final Output _displayOut;
     private final Map<String, Integer> _ports;
-    private final File _configFile;
+    private volatile File _configFile; // named for its content, so it changes when the config is rewritten
     private final Builder _builder;
     private final List<String> _configLines;
     private final List<String> _cmdList = new ArrayList<>();
-    private final String _cmdLine;
+    private volatile String _cmdLine;
     private final AtomicReference<JsConfig> _jsConfig;
-    private Process process;
-    private OutputLogger nol;
+    private final Map<String, String> _randomPortListeners = new HashMap<>();
+    private final Set<String> _allocatedPortKeys = new HashSet<>();
+    private final Set<Integer> _leasedPorts = Collections.synchronizedSet(new HashSet<>());
+    private volatile Process process;
+    private volatile OutputLogger nol;
+    private volatile AdmissionUtils.Permit _permit;
+    private Path _jsStoreDir;
+    private final AtomicReference<CompletableFuture<NatsServerRunner>> _startingAsync = new AtomicReference<>();
 
     /**
      * Get a new Builder
@@ -317,11 +339,11 @@ public class NatsServerRunner implements AutoCloseable {
             _ports.put(CONFIG_PORT_KEY, -1);
             tempPort = -1;
         }
-        if (tempPort == -1) {
-            tempPort = nextPort();
+        if (tempPort == -1 && !b.randomPorts) {
+            tempPort = allocatePort();
+            _allocatedPortKeys.add(USER_PORT_KEY);
         }
         _ports.put(USER_PORT_KEY, tempPort);
-        int userPort = tempPort;
         _ports.put(NATS_PORT_KEY, -1);
         _ports.put(NON_NATS_PORT_KEY, -1);
 
@@ -356,37 +378,8 @@ public class NatsServerRunner implements AutoCloseable {
                 _ports.put(NATS_PORT_KEY, port);
             }
             else {
-                _configFile = File.createTempFile(CONF_FILE_PREFIX, CONF_FILE_EXT);
                 _configLines = new ArrayList<>();
-                BufferedWriter writer = new BufferedWriter(new FileWriter(_configFile));
-                boolean portEntryDone = false;
-                boolean jsBlockDone = false;
-                if (b.configFilePath != null) {
-                    BufferedReader reader = new BufferedReader(new FileReader(b.configFilePath.toFile()));
-                    Iterator<String> iterator = reader.lines().iterator();
-                    processConfigLines(writer, iterator, portEntryDone, jsBlockDone);
-                    reader.close();
-                    portEntryDone = _ports.get(NATS_PORT_KEY) != -1;
-                    jsBlockDone = _jsConfig.get() != null;
-                }
-
-                if (b.configInserts != null) {
-                    processConfigLines(writer, b.configInserts.iterator(), portEntryDone, jsBlockDone);
-                    portEntryDone = _ports.get(NATS_PORT_KEY) != -1;
-                }
-
-                if (!portEntryDone) {
-                    _ports.put(NATS_PORT_KEY, userPort);
-                    writePortLine(writer, userPort);
-                }
-
-                if (b.jetstream && _jsConfig.get() == null) {
-                    _jsConfig.set(new JsConfig());
-                    writeJsConfig(writer);
-                }
-
-                writer.flush();
-                writer.close();
+                writeConfigFile();
 
                 _cmdList.add(CONFIG_FILE_OPTION_NAME);
                 _cmdList.add(_configFile.getAbsolutePath());
@@ -397,6 +390,15 @@ public class NatsServerRunner implements AutoCloseable {
             throw ioe;
         }
 
+        if (b.randomPorts) {
+            // remembered so the ports are rediscovered each time the server is started
+            for (String key : new String[] {USER_PORT_KEY, NATS_PORT_KEY}) {
+                if (_ports.get(key) == RANDOM_PORT) {
+                    _randomPortListeners.put(key, CLIENT_LISTENER);
+                }
+            }
+        }
+
         if (b.jetstream || _jsConfig.get() != null) {
             _cmdList.add(JETSTREAM_OPTION);
         }
@@ -421,115 +423,512 @@ public class NatsServerRunner implements AutoCloseable {
         if (process != null) {
             return this; // already started. Could have thrown an exception but chose to just return.
         }
-        String id = _builder.customName == null ? Integer.toHexString(hashCode()).toUpperCase() : _builder.customName;
         int aliveCheckTries = _builder.aliveCheckTries == null ? DefaultProcessAliveCheckTries : _builder.aliveCheckTries;
         long aliveCheckWait = _builder.aliveCheckWait == null ? DefaultProcessAliveCheckWait : _builder.aliveCheckWait;
-        int connectValidateTries = _builder.connectValidateTries == null ? DefaultConnectValidateTries : _builder.connectValidateTries;
-        long connectValidateTimeout = _builder.connectValidateTimeout == null ? DefaultConnectValidateTimeout : _builder.connectValidateTimeout;
-        OutputThreadProvider otp = _builder.outputThreadProvider == null ? DefaultOutputThreadProvider : _builder.outputThreadProvider;
+        int startTriesLeft = getStartTries();
 
         try {
-            ProcessBuilder pb = new ProcessBuilder(_cmdList);
-            pb.redirectErrorStream(true);
-            pb.redirectError(ProcessBuilder.Redirect.PIPE);
-            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
-            _displayOut.info("%%% Starting [" + _cmdLine + "] with redirected IO");
-
-            process = pb.start();
-            nol = OutputLogger.logOutput(otp, _displayOut, process, id);
+            admit();
+        }
+        catch (IOException e) {
+            throw admissionFailed(e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw admissionFailed(e);
+        }
 
-            int triesLeft = aliveCheckTries;
-            while (true) {
-                sleep(aliveCheckWait);
-                if (process.isAlive()) {
-                    break;
-                }
-                else {
+        while (true) {
+            try {
+                launch();
+
+                // the wait ends early as soon as the server reports it is ready,
+                // otherwise this behaves like a plain sleep and polling is the fallback
+                int triesLeft = aliveCheckTries;
+                while (true) {
+                    nol.waitForReady(aliveCheckWait);
+                    if (checkAlive(aliveCheckWait)) {
+                        break;
+                    }
                     if (--triesLeft == 0) {
                         throw new IllegalStateException("Unable to start process");
                     }
                 }
-            }
 
-            if (connectValidateTries > 0) {
-                triesLeft = connectValidateTries;
-                try {
-                    isServerReachable(_ports.get(NATS_PORT_KEY), connectValidateTimeout);
-                }
-                catch (Exception e) {
-                    if (--triesLeft == 0) {
-                        throw e;
+                discoverRandomPorts();
+                validateConnect();
+                started();
+                return this;
+            }
+            catch (Throwable t) {
+                if (--startTriesLeft > 0 && prepareRetry(t)) {
+                    try {
+                        Thread.sleep(getStartRetryDelay());
+                        continue;
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
                     }
                 }
+                throw startFailed(t);
+            }
+        }
+    }
+
+    /**
+     * Start the server without blocking the calling thread. Readiness and exit detection
+     * are timed on a shared scheduler. Calling this again while a start is in flight returns the same future.
+     * @return a future that completes with this runner once the server is started,
+     * or exceptionally with a {@link NatsServerStartupException} if it could not be started
+     */
+    public CompletableFuture<NatsServerRunner> startAsync() {
+        return startAsync(AdmissionUtils.getAdmissionTimeout());
+    }
+
+    /**
+     * Start the server without blocking the calling thread, waiting for admission at most the given time
+     * @param admissionTimeout how long to wait for a permit when admission control is on
+     * @return the future
+     */
+    CompletableFuture<NatsServerRunner> startAsync(long admissionTimeout) {
+        CompletableFuture<NatsServerRunner> future = new CompletableFuture<>();
+        while (!_startingAsync.compareAndSet(null, future)) {
+            CompletableFuture<NatsServerRunner> inFlight = _startingAsync.get();
+            if (inFlight != null) {
+                return inFlight;
             }
+        }
+        future.whenComplete((r, t) -> _startingAsync.compareAndSet(future, null));
+        RunnerScheduler.blocking().execute(() -> {
+            if (process != null) {
+                future.complete(this);
+                return;
+            }
+            admitAsync(admissionTimeout).whenComplete((v, t) -> {
+                if (t == null) {
+                    launchAsync(future, getStartTries());
+                }
+                else {
+                    future.completeExceptionally(admissionFailed(t));
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Wait for a permit to start the process when admission control is on
+     */
+    private void admit() throws IOException, InterruptedException {
+        if (_permit == null && AdmissionUtils.isEnabled()) {
+            _permit = AdmissionUtils.acquire(AdmissionUtils.estimateMemory(_jsConfig.get()));
+        }
+    }
 
-            _displayOut.info("%%% Started [" + _cmdLine + "]");
-            nol.endStartupPhase();
+    private CompletableFuture<Void> admitAsync(long admissionTimeout) {
+        if (_permit != null || !AdmissionUtils.isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return AdmissionUtils.acquireAsync(AdmissionUtils.estimateMemory(_jsConfig.get()), admissionTimeout).thenAccept(p -> _permit = p);
+    }
+
+    /**
+     * Hand the runner a permit its group was admitted with, so it does not wait for one of its own
+     * @param permit the permit
+     */
+    void admitted(AdmissionUtils.Permit permit) {
+        if (_permit == null && process == null) {
+            _permit = permit;
+        }
+        else {
+            permit.release();
+        }
+    }
+
+    private void releasePermit() {
+        AdmissionUtils.Permit p = _permit;
+        _permit = null;
+        if (p != null) {
+            p.release();
+        }
+    }
+
+    private NatsServerStartupException admissionFailed(Throwable t) {
+        releasePortLeases();
+        String message = "Not admitted to run [" + _cmdLine + "]: " + t.getMessage();
+        _displayOut.error("%%% " + message);
+        return new NatsServerStartupException(StartupFailure.UNKNOWN, message, t);
+    }
+
+    private void launchAsync(CompletableFuture<NatsServerRunner> future, int startTriesLeft) {
+        try {
+            launch();
+            new AsyncStart(future, startTriesLeft).begin();
         }
         catch (Throwable t) {
-            StringBuilder exMessage = new StringBuilder("Failed to run [").append(_cmdLine).append("]");
+            retryOrFail(future, startTriesLeft, t);
+        }
+    }
 
-            _displayOut.error("%%% " + exMessage);
-            _displayOut.error("%%% " + ERROR_NOTE_PART_1);
-            _displayOut.error("%%% " + ERROR_NOTE_PART_2);
+    private void retryOrFail(CompletableFuture<NatsServerRunner> future, int startTriesLeft, Throwable t) {
+        if (startTriesLeft > 1 && prepareRetry(t)) {
+            RunnerScheduler.scheduleBlocking(() -> launchAsync(future, startTriesLeft - 1), getStartRetryDelay());
+        }
+        else {
+            future.completeExceptionally(startFailed(t));
+        }
+    }
 
-            Throwable cause = t;
-            while (cause.getCause() != null) {
-                cause = cause.getCause();
-            }
-            String causeMsg = cause.getMessage();
-            if (causeMsg != null) {
-                _displayOut.error("    " + causeMsg);
-                exMessage.append(System.lineSeparator()).append(causeMsg);
-            }
-            StackTraceElement[] elements = cause.getStackTrace();
-            boolean canBeDone = false;
-            for (StackTraceElement element : elements) {
-                if (element.getClassName().contains("NatsServerRunner")) {
-                    _displayOut.error("    " + element);
-                    exMessage.append(System.lineSeparator()).append(element);
-                    canBeDone = true;
+    private class AsyncStart {
+        private final CompletableFuture<NatsServerRunner> future;
+        private final int startTriesLeft;
+        private final long aliveCheckWait;
+        private int triesLeft;
+        private ScheduledFuture<?> tick;
+        private boolean done;
+
+        AsyncStart(CompletableFuture<NatsServerRunner> future, int startTriesLeft) {
+            this.future = future;
+            this.startTriesLeft = startTriesLeft;
+            triesLeft = _builder.aliveCheckTries == null ? DefaultProcessAliveCheckTries : _builder.aliveCheckTries;
+            aliveCheckWait = _builder.aliveCheckWait == null ? DefaultProcessAliveCheckWait : _builder.aliveCheckWait;
+        }
+
+        synchronized void begin() {
+            // same as the blocking start: check when the server reports it is ready or each time the wait elapses.
+            // checks connect to the server and wait on the process, so they run on the blocking pool
+            tick = RunnerScheduler.scheduleBlocking(this::tick, aliveCheckWait);
+            nol.startupSignal().thenRunAsync(this::check, RunnerScheduler.blocking());
+        }
+
+        synchronized void tick() {
+            check();
+            if (!done) {
+                tick = RunnerScheduler.scheduleBlocking(this::tick, aliveCheckWait);
+            }
+        }
+
+        synchronized void check() {
+            if (done) {
+                return;
+            }
+            try {
+                if (checkAlive(aliveCheckWait)) {
+                    done = true;
+                    tick.cancel(false);
+                    discoverRandomPorts();
+                    validateConnect();
+                    started();
+                    future.complete(NatsServerRunner.this);
                 }
-                else if (canBeDone) {
-                    break;
+                else if (--triesLeft == 0) {
+                    throw new IllegalStateException("Unable to start process");
                 }
             }
+            catch (Throwable t) {
+                done = true;
+                tick.cancel(false);
+                retryOrFail(future, startTriesLeft, t);
+            }
+        }
+    }
 
-            if (_builder.fullErrorReportOnStartup) {
-                if (nol != null) {
-                    for (String line : nol.getStartupLines()) {
-                        exMessage.append(System.lineSeparator()).append(line);
+    /**
+     * Whether the bind error names one of the ports the runner allocated itself
+     */
+    private boolean isAllocatedPortInUse(String message) {
+        if (message == null) {
+            return false;
+        }
+        for (String key : _allocatedPortKeys) {
+            if (Pattern.compile(":" + _ports.get(key) + "\\b").matcher(message).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getStartTries() {
+        return Math.max(1, _builder.startTries == null ? DefaultProcessStartTries : _builder.startTries);
+    }
+
+    private long getStartRetryDelay() {
+        return _builder.startRetryDelay == null ? DefaultProcessStartRetryDelay : _builder.startRetryDelay;
+    }
+
+    /**
+     * If the server could not bind a port, get the process out of the way and give
+     * every port the runner allocated itself a fresh one, rewriting the config.
+     * @param t the startup failure
+     * @return true if the start should be tried again
+     */
+    private boolean prepareRetry(Throwable t) {
+        if (!(t instanceof NatsServerStartupException)
+            || ((NatsServerStartupException)t).getFailure() != StartupFailure.PORT_IN_USE
+            || !isAllocatedPortInUse(t.getMessage()))
+        {
+            return false; // explicitly configured ports are never changed, so trying again would not help
+        }
+        try {
+            Process p = process;
+            process = null;
+            if (p != null) {
+                p.destroy();
+            }
+            releasePortLeases();
+            for (String key : _allocatedPortKeys) {
+                _ports.put(key, allocatePort());
+            }
+            if (_configFile == null) {
+                // command line only, the port follows --port
+                int port = _ports.get(USER_PORT_KEY);
+                _cmdList.set(_cmdList.indexOf("--port") + 1, Integer.toString(port));
+                _ports.put(NATS_PORT_KEY, port);
+            }
+            else {
+                _ports.put(NATS_PORT_KEY, -1);
+                _ports.put(NON_NATS_PORT_KEY, -1);
+                writeConfigFile();
+                _cmdList.set(_cmdList.indexOf(CONFIG_FILE_OPTION_NAME) + 1, _configFile.getAbsolutePath());
+            }
+            _cmdLine = String.join(" ", _cmdList);
+            _displayOut.warning("%%% Port in use, trying again with new ports [" + _cmdLine + "]");
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void launch() throws IOException {
+        String id = _builder.customName == null ? Integer.toHexString(hashCode()).toUpperCase() : _builder.customName;
+        OutputThreadProvider otp = _builder.outputThreadProvider == null ? DefaultOutputThreadProvider : _builder.outputThreadProvider;
+
+        ProcessBuilder pb = new ProcessBuilder(_cmdList);
+        pb.redirectErrorStream(true);
+        pb.redirectError(ProcessBuilder.Redirect.PIPE);
+        pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+        _displayOut.info("%%% Starting [" + _cmdLine + "] with redirected IO");
+
+        try {
+            process = pb.start();
+        }
+        catch (IOException e) {
+            throw new NatsServerStartupException(StartupFailure.fromProcessStart(e), e.getMessage(), e);
+        }
+        nol = OutputLogger.logOutput(otp, _displayOut, process, id);
+    }
+
+    /**
+     * Check the process after a startup wait
+     * @param aliveCheckWait how long to let an exiting process finish
+     * @return true if the process is up, false if it should be checked again
+     * @throws InterruptedException if the wait for an exiting process was interrupted
+     * @throws NatsServerStartupException if the process exited
+     */
+    private boolean checkAlive(long aliveCheckWait) throws InterruptedException {
+        if (!nol.isReady() && nol.isOutputDone()) {
+            // output ended without the ready line, the process is on its way out
+            process.waitFor(aliveCheckWait, TimeUnit.MILLISECONDS);
+        }
+        if (!process.isAlive()) {
+            throw processExitedException(aliveCheckWait);
+        }
+        return nol.isReady() || !nol.isOutputDone();
+    }
+
+    private void validateConnect() throws IOException {
+        int connectValidateTries = _builder.connectValidateTries == null ? DefaultConnectValidateTries : _builder.connectValidateTries;
+        long connectValidateTimeout = _builder.connectValidateTimeout == null ? DefaultConnectValidateTimeout : _builder.connectValidateTimeout;
+        boolean connectValidateProtocol = _builder.connectValidateProtocol == null ? DefaultConnectValidateProtocol : _builder.connectValidateProtocol;
+
+        if (connectValidateTries > 0) {
+            int triesLeft = connectValidateTries;
+            int natsPort = _ports.get(NATS_PORT_KEY);
+            long backoff = CONNECT_VALIDATE_BACKOFF;
+            while (true) {
+                try {
+                    if (connectValidateProtocol) {
+                        isServerReady(natsPort, connectValidateTimeout);
                     }
+                    else {
+                        isServerReachable(natsPort, connectValidateTimeout);
+                    }
+                    break;
+                }
+                catch (IOException e) {
+                    if (--triesLeft == 0) {
+                        throw e;
+                    }
+                }
+                try {
+                    Thread.sleep(backoff);
                 }
-                if (_cmdLine.contains(CONFIG_FILE_OPTION_NAME) && _configFile != null) {
-                    String configPath = _configFile.getAbsolutePath();
-                    String configSep = getConfigSep(configPath);
-                    exMessage.append(System.lineSeparator()).append(configSep);
-                    exMessage.append(System.lineSeparator()).append(configPath);
-                    exMessage.append(System.lineSeparator()).append(configSep);
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted validating the connection.", e);
+                }
+                backoff = Math.min(backoff * 2, CONNECT_VALIDATE_MAX_BACKOFF);
+            }
+        }
+    }
+
+    /**
+     * In random port mode, fill in the ports the server actually chose from its startup output
+     * @throws NatsServerStartupException if the server did not log the port for a listener
+     */
+    private void discoverRandomPorts() {
+        if (_randomPortListeners.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> listening = parseListenPorts(nol.getStartupLines());
+        for (Map.Entry<String, String> entry : _randomPortListeners.entrySet()) {
+            Integer port = listening.get(entry.getValue());
+            if (port == null) {
+                throw new NatsServerStartupException(StartupFailure.UNKNOWN,
+                    "Server did not log the port of its " + entry.getValue() + " listener. Random ports require the server to log to the console.");
+            }
+            _ports.put(entry.getKey(), port);
+        }
+    }
+
+    /**
+     * Find the ports the server logged it is listening on
+     * @param lines the server output
+     * @return the port for each listener, i.e. client, websocket, leafnodes
+     */
+    static Map<String, Integer> parseListenPorts(List<String> lines) {
+        Map<String, Integer> ports = new HashMap<>();
+        for (String line : lines) {
+            for (String[] listen : LISTEN_LINES) {
+                int at = line.indexOf(listen[0]);
+                if (at != -1) {
+                    String address = line.substring(at + listen[0].length()).trim();
                     try {
-                        List<String> lines = Files.readAllLines(_configFile.toPath());
-                        for (String line : lines) {
-                            exMessage.append(System.lineSeparator()).append(line);
-                        }
+                        ports.put(listen[1], Integer.parseInt(address.substring(address.lastIndexOf(':') + 1)));
                     }
-                    catch (Exception ignore) {
+                    catch (NumberFormatException ignore) {
+                        // not a host:port address
                     }
-                    exMessage.append(System.lineSeparator()).append(configSep);
                 }
             }
+        }
+        return ports;
+    }
 
-            try {
-                shutdown(false);
+    private void started() {
+        _displayOut.info("%%% Started [" + _cmdLine + "]");
+        nol.endStartupPhase();
+        releasePortLeases();
+    }
+
+    /**
+     * Allocate a port, remembering it if it was leased so that only the runner's own leases are released
+     */
+    private int allocatePort() throws IOException {
+        boolean leasing = isLeasingPorts();
+        int port = nextPort();
+        if (leasing) {
+            _leasedPorts.add(port);
+        }
+        return port;
+    }
+
+    /**
+     * Once the server has bound its ports, or failed to, the leases are no longer needed
+     */
+    private void releasePortLeases() {
+        List<Integer> leased;
+        synchronized (_leasedPorts) {
+            if (_leasedPorts.isEmpty()) {
+                return;
             }
-            catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            leased = new ArrayList<>(_leasedPorts);
+            _leasedPorts.clear();
+        }
+        PortLeaseUtils.releaseHeld(leased);
+    }
+
+    private NatsServerStartupException startFailed(Throwable t) {
+        releasePortLeases();
+        releasePermit();
+        StartupFailure failure = t instanceof NatsServerStartupException ? ((NatsServerStartupException)t).getFailure() : StartupFailure.UNKNOWN;
+        StringBuilder exMessage = new StringBuilder("Failed to run [").append(_cmdLine).append("] ").append(failure);
+
+        _displayOut.error("%%% " + exMessage);
+        if (failure == StartupFailure.BINARY_NOT_FOUND || failure == StartupFailure.UNKNOWN) {
+            _displayOut.error("%%% " + ERROR_NOTE_PART_1);
+            _displayOut.error("%%% " + ERROR_NOTE_PART_2);
+        }
+
+        Throwable cause = t;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        String causeMsg = cause.getMessage();
+        if (causeMsg != null) {
+            _displayOut.error("    " + causeMsg);
+            exMessage.append(System.lineSeparator()).append(causeMsg);
+        }
+        StackTraceElement[] elements = cause.getStackTrace();
+        boolean canBeDone = false;
+        for (StackTraceElement element : elements) {
+            if (element.getClassName().contains("NatsServerRunner")) {
+                _displayOut.error("    " + element);
+                exMessage.append(System.lineSeparator()).append(element);
+                canBeDone = true;
+            }
+            else if (canBeDone) {
+                break;
+            }
+        }
+
+        if (_builder.fullErrorReportOnStartup) {
+            if (nol != null) {
+                for (String line : nol.getStartupLines()) {
+                    exMessage.append(System.lineSeparator()).append(line);
+                }
+            }
+            if (_cmdLine.contains(CONFIG_FILE_OPTION_NAME) && _configFile != null) {
+                String configPath = _configFile.getAbsolutePath();
+                String configSep = getConfigSep(configPath);
+                exMessage.append(System.lineSeparator()).append(configSep);
+                exMessage.append(System.lineSeparator()).append(configPath);
+                exMessage.append(System.lineSeparator()).append(configSep);
+                try {
+                    List<String> lines = Files.readAllLines(_configFile.toPath());
+                    for (String line : lines) {
+                        exMessage.append(System.lineSeparator()).append(line);
+                    }
+                }
+                catch (Exception ignore) {
+                }
+                exMessage.append(System.lineSeparator()).append(configSep);
             }
+        }
 
-            throw new IllegalStateException(exMessage.toString(), t);
+        try {
+            shutdown(false);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
-        return this;
+        return new NatsServerStartupException(failure, exMessage.toString(), t);
+    }
+
+    private NatsServerStartupException processExitedException(long outputWait) {
+        if (!nol.isOutputDone()) {
+            nol.waitForReady(outputWait); // let the reader drain what the process wrote before it exited
+        }
+        List<String> lines = nol.getStartupLines();
+        StartupFailure failure = StartupFailure.fromOutput(lines);
+        String msg = "Process exited during startup with exit code " + process.exitValue();
+        String causeLine = StartupFailure.findCauseLine(lines);
+        if (causeLine != null) {
+            msg = msg + ": " + causeLine;
+        }
+        return new NatsServerStartupException(failure, msg);
     }
 
     public static void isServerReachable(int port, long timeoutMs) throws IOException {
@@ -538,6 +937,38 @@ public class NatsServerRunner implements AutoCloseable {
         }
     }
 
+    /**
+     * Check that the server completes a protocol round trip: read the INFO, send CONNECT and PING and wait for PONG.
+     * An -ERR in response, for instance an authorization violation, also counts since the server processed the request.
+     * If the server requires TLS, receiving the INFO is as far as the check goes.
+     * The whole exchange must complete within the timeout.
+     * @param port the port
+     * @param timeoutMs the timeout for the whole exchange in milliseconds
+     * @throws IOException if the server could not be reached or did not respond properly in time
+     */
+    public static void isServerReady(int port, long timeoutMs) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(DefaultLocalhostHost.host, port), (int)timeoutMs);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            String info = ProtocolClient.readProtocolLine(socket, in, deadline);
+            if (!info.startsWith("INFO")) {
+                throw new IOException("Expected INFO, received: " + info);
+            }
+            if (info.contains("\"tls_required\":true")) {
+                return;
+            }
+            OutputStream out = socket.getOutputStream();
+            out.write(CONNECT_BYTES);
+            out.write(ProtocolClient.PING_BYTES);
+            out.flush();
+            String response = ProtocolClient.readProtocolLine(socket, in, deadline);
+            if (!response.startsWith("PONG") && !response.startsWith("-ERR")) {
+                throw new IOException("Expected PONG, received: " + response);
+            }
+        }
+    }
+
     private String getConfigSep(String configPath) {
         StringBuilder sep = new StringBuilder("------------------------------");
         int len = configPath.length();
@@ -550,94 +981,115 @@ public class NatsServerRunner implements AutoCloseable {
     // ----------------------------------------------------------------------------------------------------
     // HELPERS
     // ----------------------------------------------------------------------------------------------------
-    private void processConfigLines(BufferedWriter writer, Iterator<String> iterator, boolean portEntryDone, boolean jsBlockDone) throws IOException {
-        Matcher constructionPortMatcher = Pattern.compile(PORT_REGEX).matcher("");
-        Matcher mappedPortMatcher = Pattern.compile(PORT_MAPPED_REGEX).matcher("");
+    private void writeConfigFile() throws IOException {
+        _configLines.clear();
+        _jsConfig.set(null);
+        int userPort = _ports.get(USER_PORT_KEY);
+        boolean portEntryDone = false;
+        boolean jsBlockDone = false;
+        if (_builder.configFilePath != null) {
+            fillTemplate(ConfigTemplate.forFile(_builder.configFilePath), portEntryDone, jsBlockDone);
+            portEntryDone = true; // filling always ends with the nats port set
+            jsBlockDone = _jsConfig.get() != null;
+        }
 
-        boolean userTaken = false;
+        if (_builder.configInserts != null) {
+            fillTemplate(ConfigTemplate.forLines(_builder.configInserts), portEntryDone, jsBlockDone);
+            portEntryDone = true;
+        }
+
+        if (!portEntryDone) {
+            _ports.put(NATS_PORT_KEY, userPort);
+            writePortLine(userPort);
+        }
+
+        if (_builder.jetstream && _jsConfig.get() == null) {
+            _jsConfig.set(newJsConfig(null));
+            writeJsConfig();
+        }
+
+        _configFile = ConfigTemplate.write(_configLines);
+    }
+
+    private void fillTemplate(ConfigTemplate template, boolean portEntryDone, boolean jsBlockDone) throws IOException {
         int userPort = _ports.get(USER_PORT_KEY); // already ensured so it's not -1
-        int natsPort = -1;
-        int level = 0;
-        while (iterator.hasNext()) {
-            String line = iterator.next();
-            String trim = line.trim();
-            if (trim.startsWith("jetstream") && level == 0) {
-                if (jsBlockDone) {
-                    throw new IOException("Improper configuration, cannot have multiple top level jetstream blocks.");
-                }
-                // extract jetstream
-                if (trim.endsWith("enabled")) {
-                    _jsConfig.set(new JsConfig());
-                }
-                else {
-                    List<String> jsLines = new ArrayList<>();
-                    jsLines.add(line);
-                    while (!trim.endsWith("}")) {
-                        line = iterator.next();
-                        jsLines.add(line);
-                        trim = line.trim();
+        boolean userTaken = false;
+        Integer natsPort = null; // the port may be -1 for random
+        List<String> literals = template.getLiterals();
+        List<ConfigTemplate.Slot> slots = template.getSlots();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < slots.size(); i++) {
+            sb.append(literals.get(i));
+            ConfigTemplate.Slot slot = slots.get(i);
+            switch (slot.type) {
+                case JETSTREAM:
+                    if (jsBlockDone) {
+                        throw new IOException("Improper configuration, cannot have multiple top level jetstream blocks.");
                     }
-                    _jsConfig.set(new JsConfig(jsLines));
-                }
-                jsBlockDone = true;
-                writeJsConfig(writer);
-            }
-            else {
-                if (trim.endsWith("{")) {
-                    level++;
-                }
-                else if (trim.startsWith("}")) {
-                    level--;
-                }
-                // replacing it here allows us to not care if the port is at the top level
-                // or for instance inside a websocket block
-                constructionPortMatcher.reset(line);
-                if (constructionPortMatcher.find()) {
+                    try {
+                        _jsConfig.set(newJsConfig(slot.entry));
+                    }
+                    catch (IllegalArgumentException e) {
+                        throw new IOException("Improper configuration, " + e.getMessage(), e);
+                    }
+                    jsBlockDone = true;
+                    sb.append(String.join("\n", _jsConfig.get().configInserts));
+                    break;
+
+                case USER_PORT:
                     if (userTaken || portEntryDone) {
                         throw new IOException("Improper configuration, cannot assign port multiple times.");
                     }
                     userTaken = true;
-                    if (level == 0) {
+                    if (slot.topLevel) {
                         natsPort = userPort;
                     }
                     else {
                         _ports.put(NON_NATS_PORT_KEY, userPort);
-                    }
-                    writeConfigLine(writer, PORT_PROPERTY + userPort);
-                }
-                else {
-                    mappedPortMatcher.reset(line);
-                    if (mappedPortMatcher.find()) {
-                        int start = line.indexOf("<");
-                        int end = line.indexOf(">");
-                        String key = line.substring(start + 1, end);
-                        Integer mapped = _ports.get(key);
-                        if (mapped == null) {
-                            mapped = nextPort();
-                            _ports.put(key, mapped);
+                        if (userPort == RANDOM_PORT) {
+                            _randomPortListeners.put(NON_NATS_PORT_KEY, slot.listener);
                         }
-                        writeConfigLine(writer, line.replace("<" + key + ">", mapped.toString()));
-                        if (level == 0) {
-                            natsPort = mapped;
+                    }
+                    sb.append(PORT_PROPERTY).append(userPort);
+                    break;
+
+                case MAPPED_PORT:
+                    Integer mapped = _ports.get(slot.key);
+                    if (mapped == null) {
+                        if (_builder.randomPorts) {
+                            mapped = RANDOM_PORT;
                         }
                         else {
-                            _ports.put(NON_NATS_PORT_KEY, mapped);
+                            mapped = allocatePort();
+                            _allocatedPortKeys.add(slot.key);
                         }
+                        _ports.put(slot.key, mapped);
+                    }
+                    if (mapped == RANDOM_PORT) {
+                        _randomPortListeners.put(slot.key, slot.topLevel ? CLIENT_LISTENER : slot.listener);
+                    }
+                    sb.append(mapped);
+                    if (slot.topLevel) {
+                        natsPort = mapped;
                     }
                     else {
-                        writeConfigLine(writer, line);
+                        _ports.put(NON_NATS_PORT_KEY, mapped);
                     }
-                }
+                    break;
             }
         }
+        sb.append(literals.get(slots.size()));
+        if (!template.isEmpty()) {
+            Collections.addAll(_configLines, sb.toString().split("\r?\n", -1));
+        }
 
-        if (natsPort == -1) {
+        if (natsPort == null) {
             if (userTaken) {
                 _ports.put(NATS_PORT_KEY, 4222);
             }
             else {
                 _ports.put(NATS_PORT_KEY, userPort);
-                writePortLine(writer, userPort);
+                writePortLine(userPort);
             }
         }
         else {
@@ -645,29 +1097,35 @@ public class NatsServerRunner implements AutoCloseable {
         }
     }
 
-    private void writePortLine(BufferedWriter writer, int port) throws IOException {
-        writeConfigLine(writer, PORT_PROPERTY + port);
+    private void writePortLine(int port) {
+        writeConfigLine(PORT_PROPERTY + port);
     }
 
-    private void writeJsConfig(BufferedWriter writer) throws IOException {
-        for (String s : _jsConfig.get().configInserts) {
-            writeConfigLine(writer, s);
+    private JsConfig newJsConfig(NatsConf.Entry jsBlock) throws IOException {
+        JsConfig.Builder jb = _builder.jsConfig == null ? JsConfig.builder() : _builder.jsConfig.copy();
+        if (_builder.jsStoreDir != null) {
+            jb.storeDir(_builder.jsStoreDir);
+        }
+        if (_builder.jsStoreLocation != null) {
+            jb.storeLocation(_builder.jsStoreLocation);
+        }
+        if (jsBlock != null) {
+            jb.block(jsBlock);
         }
+        if (jb.storeDir == null && _jsStoreDir != null) {
+            jb.storeDir(_jsStoreDir); // rewriting the config for a retry, keep the directory already created
+        }
+        JsConfig jsConfig = jb.build();
+        _jsStoreDir = jsConfig.storeDirPath;
+        return jsConfig;
     }
 
-    private void writeConfigLine(BufferedWriter writer, String line) throws IOException {
-        _configLines.add(line);
-        writer.write(line);
-        writer.write(System.lineSeparator());
+    private void writeJsConfig() {
+        _configLines.addAll(_jsConfig.get().configInserts);
     }
 
-    private void sleep(long sleep) {
-        try {
-            Thread.sleep(sleep);
-        }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    private void writeConfigLine(String line) {
+        _configLines.add(line);
     }
 
     // ====================================================================================================
@@ -721,6 +1179,23 @@ public class NatsServerRunner implements AutoCloseable {
         return _configLines;
     }
 
+    /**
+     * Get the JetStream config, which has the store directory
+     * @return the config or null if JetStream is not enabled
+     */
+    public JsConfig getJsConfig() {
+        return _jsConfig.get();
+    }
+
+    /**
+     * Whether the server process is running
+     * @return true if it is
+     */
+    public boolean isRunning() {
+        Process p = process;
+        return p != null && p.isAlive();
+    }
+
     /**
      * Get the uri in the form nats://localhost:port
      * @return the uri string
@@ -737,6 +1212,61 @@ public class NatsServerRunner implements AutoCloseable {
         return _cmdLine;
     }
 
+    /**
+     * Remove all JetStream state so the server can be reused by the next test. Every stream is deleted through
+     * the JetStream API, which includes KV and Object Store buckets since they are streams named KV_ and OBJ_.
+     * Only the account a client without credentials is in is reset. If the API cannot be used,
+     * the server is restarted with an emptied store directory.
+     * @throws IOException if the store directory could not be emptied
+     * @throws InterruptedException if the wait for the restart was interrupted
+     * @throws IllegalStateException if JetStream is not enabled
+     */
+    public void resetJetStream() throws IOException, InterruptedException {
+        JsConfig jsConfig = _jsConfig.get();
+        if (jsConfig == null) {
+            throw new IllegalStateException("JetStream is not enabled.");
+        }
+        if (process == null) {
+            JsStoreUtils.emptyDirectory(jsConfig.storeDirPath);
+            return;
+        }
+        try {
+            deleteAllStreams();
+        }
+        catch (IOException | RuntimeException e) {
+            _displayOut.warning("%%% JetStream reset through the API failed, restarting with an empty store: " + e);
+            shutdown(true);
+            JsStoreUtils.emptyDirectory(jsConfig.storeDirPath);
+            start();
+        }
+    }
+
+    private void deleteAllStreams() throws IOException {
+        try (ProtocolClient client = ProtocolClient.connect(getDefaultLocalhostHost().host, getNatsPort(), null, null, JS_API_TIMEOUT)) {
+            // deleting shifts the paging offsets, so always list from the start
+            while (true) {
+                List<Object> names = Json.getList(jsApi(client, "$JS.API.STREAM.NAMES", "{\"offset\":0}"), "streams");
+                if (names == null || names.isEmpty()) {
+                    return;
+                }
+                for (Object name : names) {
+                    if (!Json.getBoolean(jsApi(client, "$JS.API.STREAM.DELETE." + name, ""), "success")) {
+                        throw new IOException("Stream " + name + " was not deleted.");
+                    }
+                }
+            }
+        }
+    }
+
+    private static Map<String, Object> jsApi(ProtocolClient client, String subject, String payload) throws IOException {
+        Map<String, Object> response = Json.parseObject(client.request(subject, payload));
+        Map<String, Object> error = Json.getObject(response, "error");
+        if (error != null) {
+            throw new IOException(subject + " failed: " + Json.getString(error, "description"));
+        }
+        return response;
+    }
+
     /**
      * Shut the server down
      * @param wait whether to block while waiting for the process to shut down
@@ -750,7 +1280,29 @@ public class NatsServerRunner implements AutoCloseable {
                 process.waitFor();
             }
             process = null;
+            releasePermit();
+        }
+    }
+
+    /**
+     * Shut the server down without blocking the calling thread
+     * @return a future that completes when the process has exited
+     */
+    public CompletableFuture<Void> shutdownAsync() {
+        Process p = process;
+        if (p == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        _displayOut.info("%%% Shut down [" + _cmdLine + "]");
+        p.destroy();
+        process = null;
+        AdmissionUtils.Permit permit = _permit;
+        _permit = null;
+        return RunnerScheduler.whenExited(p).thenRun(() -> {
+            if (permit != null) {
+                permit.release();
+            }
+        });
     }
 
     /**
@@ -776,6 +1328,9 @@ public class NatsServerRunner implements AutoCloseable {
         Map<String, Integer> ports = new HashMap<>();
         DebugLevel debugLevel;
         boolean jetstream;
+        Path jsStoreDir;
+        JsStoreLocation jsStoreLocation;
+        JsConfig.Builder jsConfig;
         Path configFilePath;
         List<String> configInserts;
         List<String> customArgs;
@@ -788,11 +1343,13 @@ public class NatsServerRunner implements AutoCloseable {
         Integer aliveCheckTries;
         Integer connectValidateTries;
         Long connectValidateTimeout;
+        Boolean connectValidateProtocol;
         boolean allowCommandLineOnly = false;
         boolean fullErrorReportOnStartup = true;
         String customName;
         OutputThreadProvider outputThreadProvider;
         boolean autoStart = true;
+        boolean randomPorts = false;
 
         public Builder port(Integer port) {
             return port(NatsRunnerUtils.CONFIG_PORT_KEY, port);
@@ -840,6 +1397,55 @@ public class NatsServerRunner implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Use this directory for JetStream storage instead of a new temp directory, also enables JetStream.
+         * Any store_dir in the config is replaced, as it is when a temp directory is used.
+         * @param jsStoreDir the directory, for instance a clone of a snapshot from {@link JsStoreUtils#clone(String)}
+         * @return the builder
+         */
+        public Builder jsStoreDir(Path jsStoreDir) {
+            this.jsStoreDir = jsStoreDir;
+            this.jetstream = jsStoreDir != null || jetstream;
+            return this;
+        }
+
+        /**
+         * Where to create the JetStream store directory, instead of the default from
+         * {@link NatsRunnerUtils#getDefaultJsStoreLocation()}. Ignored when a jsStoreDir is given.
+         * @param jsStoreLocation the location
+         * @return the builder
+         */
+        public Builder jsStoreLocation(JsStoreLocation jsStoreLocation) {
+            this.jsStoreLocation = jsStoreLocation;
+            return this;
+        }
+
+        /**
+         * Typed JetStream options, also enables JetStream. The options replace the same entries
+         * in a jetstream block from the config file.
+         * @param jsConfig the JetStream config builder, which is copied
+         * @return the builder
+         */
+        public Builder jsConfig(JsConfig.Builder jsConfig) {
+            this.jsConfig = jsConfig == null ? null : jsConfig.copy();
+            this.jetstream = jsConfig != null || jetstream;
+            return this;
+        }
+
+        /**
+         * Apply a JetStream profile on top of any typed options, also enables JetStream
+         * @param profile the profile
+         * @return the builder
+         */
+        public Builder jsProfile(JsProfile profile) {
+            if (jsConfig == null) {
+                jsConfig = JsConfig.builder();
+            }
+            jsConfig.profile(profile);
+            this.jetstream = true;
+            return this;
+        }
+
         public Builder configFilePath(String configFilePath) {
             this.configFilePath = configFilePath == null ? null : Paths.get(configFilePath);
             return this;
@@ -930,6 +1536,16 @@ public class NatsServerRunner implements AutoCloseable {
             return this;
         }
 
+        public Builder connectValidateProtocol() {
+            this.connectValidateProtocol = true;
+            return this;
+        }
+
+        public Builder connectValidateProtocol(Boolean connectValidateProtocol) {
+            this.connectValidateProtocol = connectValidateProtocol;
+            return this;
+        }
+
         public Builder allowCommandLineOnly() {
             this.allowCommandLineOnly = true;
             return this;
@@ -950,6 +1566,22 @@ public class NatsServerRunner implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Let the server pick its own ports. Ports that are not set explicitly are written to the config
+         * as -1, and the ports the server actually listens on are read from its startup output.
+         * Port getters return -1 for those ports until the server is started. Requires the server
+         * to log to the console, not only to a log file.
+         * @return the builder
+         */
+        public Builder randomPorts() {
+            return randomPorts(true);
+        }
+
+        public Builder randomPorts(boolean randomPorts) {
+            this.randomPorts = randomPorts;
+            return this;
+        }
+
         public Builder autoStart(boolean autoStart) {
             this.autoStart = autoStart;
             return this;
@@ -973,6 +1605,40 @@ public class NatsServerRunner implements AutoCloseable {
             return this;
         }
 
+        /**
+         * A copy of this builder, so building from the copy does not change this one
+         * @return the copy
+         */
+        Builder copy() {
+            Builder b = new Builder();
+            b.ports.putAll(ports);
+            b.debugLevel = debugLevel;
+            b.jetstream = jetstream;
+            b.jsStoreDir = jsStoreDir;
+            b.jsStoreLocation = jsStoreLocation;
+            b.jsConfig = jsConfig == null ? null : jsConfig.copy();
+            b.configFilePath = configFilePath;
+            b.configInserts = configInserts == null ? null : new ArrayList<>(configInserts);
+            b.customArgs = customArgs == null ? null : new ArrayList<>(customArgs);
+            b.executablePath = executablePath;
+            b.output = output;
+            b.outputLevel = outputLevel;
+            b.startTries = startTries;
+            b.startRetryDelay = startRetryDelay;
+            b.aliveCheckWait = aliveCheckWait;
+            b.aliveCheckTries = aliveCheckTries;
+            b.connectValidateTries = connectValidateTries;
+            b.connectValidateTimeout = connectValidateTimeout;
+            b.connectValidateProtocol = connectValidateProtocol;
+            b.allowCommandLineOnly = allowCommandLineOnly;
+            b.fullErrorReportOnStartup = fullErrorReportOnStartup;
+            b.customName = customName;
+            b.outputThreadProvider = outputThreadProvider;
+            b.autoStart = autoStart;
+            b.randomPorts = randomPorts;
+            return b;
+        }
+
         public NatsServerRunner build() throws IOException {
             return new NatsServerRunner(this);
         }
@@ -0,0 +1,41 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+/**
+ * Thrown when the server could not be started, carrying the reason if it could be determined
+ */
+public class NatsServerStartupException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final StartupFailure failure;
+
+    public NatsServerStartupException(StartupFailure failure, String message) {
+        super(message);
+        this.failure = failure;
+    }
+
+    public NatsServerStartupException(StartupFailure failure, String message, Throwable cause) {
+        super(message, cause);
+        this.failure = failure;
+    }
+
+    /**
+     * The reason the server failed to start
+     * @return the failure
+     */
+    public StartupFailure getFailure() {
+        return failure;
+    }
+}
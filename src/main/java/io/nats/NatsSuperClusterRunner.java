@@ -0,0 +1,263 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Runs a super cluster, several clusters connected by gateways, starting and shutting down every server in parallel
+ */
+public class NatsSuperClusterRunner implements AutoCloseable {
+    private final List<NatsClusterRunner> _clusters;
+    private final List<NatsServerRunner> _runners;
+    private final boolean _waitForGateways;
+
+    /**
+     * Get a new Builder
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    protected NatsSuperClusterRunner(Builder b) throws IOException {
+        if (b.clusters.size() < 2) {
+            throw new IllegalArgumentException("A super cluster requires at least 2 clusters.");
+        }
+        List<NatsClusterRunner> clusters = new ArrayList<>();
+        List<NatsServerRunner> runners = new ArrayList<>();
+        for (List<ClusterInsert> inserts : ClusterUtils.createSuperClusterInserts(b.clusters, b.jsStoreDirBase)) {
+            NatsClusterRunner cluster = NatsClusterRunner.builder()
+                .clusterInserts(inserts)
+                .runnerCustomizer(b.runnerCustomizer)
+                .doNotStart()
+                .build();
+            clusters.add(cluster);
+            runners.addAll(cluster.getRunners());
+        }
+        _clusters = Collections.unmodifiableList(clusters);
+        _runners = Collections.unmodifiableList(runners);
+        _waitForGateways = b.waitForGateways;
+
+        if (b.autoStart) {
+            start(b.startTimeout);
+        }
+    }
+
+    /**
+     * Start every server of every cluster in parallel and wait until all of them are started,
+     * and if the runner was built to wait for gateways, until the gateways are connected.
+     * If any server fails to start, all servers are shut down.
+     * @param timeoutMillis the maximum time to wait for all servers
+     * @return this runner
+     */
+    public NatsSuperClusterRunner start(long timeoutMillis) {
+        long start = System.currentTimeMillis();
+        Set<Integer> ports = new HashSet<>();
+        for (NatsClusterRunner cluster : _clusters) {
+            ports.addAll(ClusterUtils.insertPorts(cluster.getClusterInserts()));
+        }
+        NatsClusterRunner.startAll(_runners, ports, timeoutMillis, "Super cluster");
+        if (_waitForGateways) {
+            try {
+                waitForGateways(Math.max(1, timeoutMillis - (System.currentTimeMillis() - start)));
+            }
+            catch (RuntimeException e) {
+                NatsClusterRunner.shutdownQuietly(_runners);
+                throw e;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Poll the /gatewayz monitoring endpoint of every node until each node has an outbound gateway
+     * to every other cluster. Every node must have a monitor port.
+     * @param timeoutMillis the maximum time to wait
+     * @return a future that completes when the gateways are connected
+     */
+    public CompletableFuture<Void> gatewaysReadyAsync(long timeoutMillis) {
+        List<ClusterNode> pending = new ArrayList<>();
+        for (NatsClusterRunner cluster : _clusters) {
+            pending.addAll(NatsClusterRunner.monitoredNodes(cluster.getClusterInserts(), "gateways"));
+        }
+        int expected = _clusters.size() - 1;
+        return RunnerScheduler.pollUntil(() -> {
+            pending.removeIf(node -> {
+                try {
+                    return MonitorUtils.getOutboundGatewayCount(MonitorUtils.getMonitorHost(node), node.monitor) >= expected;
+                }
+                catch (IOException e) {
+                    return false; // not reachable yet, try again next time
+                }
+            });
+            return pending.isEmpty();
+        }, MonitorUtils.DEFAULT_MONITOR_POLL_INTERVAL, timeoutMillis, "super cluster gateways");
+    }
+
+    /**
+     * Wait (blocking) until each node has an outbound gateway to every other cluster. See {@link #gatewaysReadyAsync(long)}
+     * @param timeoutMillis the maximum time to wait
+     * @return this runner
+     */
+    public NatsSuperClusterRunner waitForGateways(long timeoutMillis) {
+        NatsClusterRunner.await(gatewaysReadyAsync(timeoutMillis), "gateways");
+        return this;
+    }
+
+    /**
+     * Shut down all servers of all clusters in parallel
+     * @return a future that completes when every server process has exited
+     */
+    public CompletableFuture<Void> shutdownAsync() {
+        return NatsClusterRunner.shutdownAllAsync(_runners);
+    }
+
+    /**
+     * Shut down all servers of all clusters in parallel, waiting (blocking) until they have exited
+     * @throws InterruptedException if the wait was interrupted
+     */
+    public void shutdown() throws InterruptedException {
+        try {
+            shutdownAsync().get();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * For AutoCloseable, calls shutdown() and deletes the routes include files if there are any
+     */
+    @Override
+    public void close() throws Exception {
+        try {
+            shutdown();
+        }
+        finally {
+            for (NatsClusterRunner cluster : _clusters) {
+                ClusterUtils.deleteRoutesIncludeFiles(cluster.getClusterInserts());
+            }
+        }
+    }
+
+    // ====================================================================================================
+    // Getters
+    // ====================================================================================================
+    public List<NatsClusterRunner> getClusters() {
+        return _clusters;
+    }
+
+    public NatsClusterRunner getCluster(int index) {
+        return _clusters.get(index);
+    }
+
+    public List<NatsServerRunner> getRunners() {
+        return _runners;
+    }
+
+    // ====================================================================================================
+    // Builder
+    // ====================================================================================================
+    public static class Builder {
+        List<ClusterDefaults> clusters = new ArrayList<>();
+        Path jsStoreDirBase;
+        Consumer<NatsServerRunner.Builder> runnerCustomizer;
+        long startTimeout = NatsClusterRunner.DEFAULT_START_TIMEOUT;
+        boolean autoStart = true;
+        boolean waitForGateways = false;
+
+        /**
+         * Add a cluster. Its name must be unique within the super cluster.
+         * @param cd the cluster defaults
+         * @return the builder
+         */
+        public Builder cluster(ClusterDefaults cd) {
+            clusters.add(cd);
+            return this;
+        }
+
+        /**
+         * Add clusters named cluster0, cluster1... with servers named cluster0-server0...
+         * All ports are dynamically allocated and every server has a monitor port.
+         * @param count the number of clusters
+         * @param nodesPerCluster the number of servers in each cluster
+         * @return the builder
+         */
+        public Builder clusters(int count, int nodesPerCluster) {
+            for (int x = 0; x < count; x++) {
+                String name = "cluster" + x;
+                cluster(new ClusterDefaults()
+                    .clusterName(name)
+                    .serverNamePrefix(name + "-server")
+                    .count(nodesPerCluster)
+                    .monitor(true)
+                    .dynamicPorts(true));
+            }
+            return this;
+        }
+
+        public Builder jsStoreDirBase(Path jsStoreDirBase) {
+            this.jsStoreDirBase = jsStoreDirBase;
+            return this;
+        }
+
+        /**
+         * Customize each server's builder
+         * @param runnerCustomizer the customizer
+         * @return the builder
+         */
+        public Builder runnerCustomizer(Consumer<NatsServerRunner.Builder> runnerCustomizer) {
+            this.runnerCustomizer = runnerCustomizer;
+            return this;
+        }
+
+        /**
+         * Wait for every node to have a gateway to every other cluster when starting. Requires monitor ports.
+         * @return the builder
+         */
+        public Builder waitForGateways() {
+            this.waitForGateways = true;
+            return this;
+        }
+
+        public Builder startTimeout(long startTimeout) {
+            this.startTimeout = startTimeout;
+            return this;
+        }
+
+        public Builder autoStart(boolean autoStart) {
+            this.autoStart = autoStart;
+            return this;
+        }
+
+        public Builder doNotStart() {
+            this.autoStart = false;
+            return this;
+        }
+
+        public NatsSuperClusterRunner build() throws IOException {
+            return new NatsSuperClusterRunner(this);
+        }
+    }
+}
@@ -21,8 +21,12 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 import static io.nats.NatsRunnerUtils.DEFAULT_NATS_SERVER;
@@ -35,18 +39,31 @@ import static io.nats.NatsRunnerUtils.DEFAULT_NATS_SERVER;
  * <p>
  * The use of the input stream is threadsafe since it's used only in a single thread&mdash;the one launched by this
  * code.
+ *
+ * <p>
+ * While in the startup phase, the logger also watches for the line the server writes once it is ready
+ * and completes the {@link #startupSignal()}, releasing anyone waiting in {@link #waitForReady(long)}.
+ * The signal also completes when the output ends, which happens when the process exits.
  */
 final class OutputLogger implements Runnable {
+    static final String SERVER_READY_LINE = "Server is ready";
+
     private final Output output;
     private final Process process;
     private final List<String> startupLines;
-    private boolean inStartupPhase;
+    private final CompletableFuture<Void> startupSignal;
+    private volatile boolean inStartupPhase;
+    private volatile boolean ready;
+    private volatile boolean outputDone;
 
     private OutputLogger(Output output, Process process) {
         this.output = output;
         this.process = process;
-        startupLines = new ArrayList<>();
+        startupLines = new CopyOnWriteArrayList<>();
+        startupSignal = new CompletableFuture<>();
         inStartupPhase = true;
+        ready = false;
+        outputDone = false;
     }
 
     public void endStartupPhase() {
@@ -57,10 +74,55 @@ final class OutputLogger implements Runnable {
         return startupLines;
     }
 
+    /**
+     * Whether the server has written its ready line
+     * @return true if the server reported it is ready
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether the output has ended, which happens when the process exits
+     * @return true if there will be no more output
+     */
+    public boolean isOutputDone() {
+        return outputDone;
+    }
+
+    /**
+     * Wait up to the timeout for the server to report it is ready or for the output to end.
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return true if the server reported it is ready
+     */
+    public boolean waitForReady(long timeoutMillis) {
+        try {
+            startupSignal.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | TimeoutException ignore) {
+        }
+        return ready;
+    }
+
+    /**
+     * A future that completes when the server reports it is ready or the output ends
+     * @return the future
+     */
+    public CompletableFuture<Void> startupSignal() {
+        return startupSignal;
+    }
+
     public void logInfo(String line) {
         output.info(() -> line);
         if (inStartupPhase) {
             startupLines.add(line);
+            if (!ready && line.contains(SERVER_READY_LINE)) {
+                ready = true;
+                startupSignal.complete(null);
+            }
         }
     }
 
@@ -76,6 +138,10 @@ final class OutputLogger implements Runnable {
         catch (IOException e) {
             output.warning(() -> "caught i/o exception closing reader" + e);
         }
+        finally {
+            outputDone = true;
+            startupSignal.complete(null); // output is done, no reason for anyone to keep waiting
+        }
     }
 
     static OutputLogger logOutput(final OutputThreadProvider otp, final Output output, final Process process, String threadName) {
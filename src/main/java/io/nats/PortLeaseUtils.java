@@ -0,0 +1,288 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Port leases coordinated across threads and JVMs through a file locked lease table in the temp directory.
+ * A leased port is not handed out again until the lease is released, which the runner does once the
+ * server has bound it, or until the lease expires. Optionally each test worker allocates from its own
+ * range of ports, the worker being identified by a system property such as {@value #GRADLE_WORKER_PROPERTY}.
+ */
+public abstract class PortLeaseUtils {
+    public static final String GRADLE_WORKER_PROPERTY = "org.gradle.test.worker";
+    public static final String DEFAULT_LEASE_FILE_NAME = NatsRunnerUtils.CONF_FILE_PREFIX + "_port_leases";
+    public static final long DEFAULT_LEASE_TTL = 60_000;
+    private static final int MAX_EPHEMERAL_TRIES = 100;
+
+    private static final Object LOCK = new Object();
+    private static Path LeaseFile = Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_LEASE_FILE_NAME);
+    private static long LeaseTtl = DEFAULT_LEASE_TTL;
+    private static String WorkerProperty = GRADLE_WORKER_PROPERTY;
+    private static int RangeStart = -1;
+    private static int RangeSize = -1;
+    private static int RangeCursor = 0;
+    private static final Set<Integer> HELD = new HashSet<>(); // leased by this JVM and not released, guarded by LOCK
+
+    private PortLeaseUtils() {}
+
+    /**
+     * Lease a port. The port is not leased to anyone else, in this or any other JVM using the same
+     * lease file, until it is released or the lease expires.
+     * @return the port
+     * @throws IOException if the lease table cannot be read or written or there is no port available
+     */
+    public static int lease() throws IOException {
+        synchronized (LOCK) {
+            try (FileChannel channel = FileChannel.open(LeaseFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    long now = System.currentTimeMillis();
+                    Map<Integer, Long> leases = read(channel, now);
+                    int port = RangeStart > 0 && RangeSize > 0 ? fromRange(leases) : fromEphemeral(leases);
+                    leases.put(port, now + LeaseTtl);
+                    write(channel, leases);
+                    HELD.add(port);
+                    return port;
+                }
+                finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Release a port lease. Releasing a port that is not leased does nothing.
+     * @param port the port
+     * @throws IOException if the lease table cannot be read or written
+     */
+    public static void release(int port) throws IOException {
+        synchronized (LOCK) {
+            HELD.remove(port);
+            try (FileChannel channel = FileChannel.open(LeaseFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    Map<Integer, Long> leases = read(channel, System.currentTimeMillis());
+                    if (leases.remove(port) != null) {
+                        write(channel, leases);
+                    }
+                }
+                finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the leases this JVM holds on any of the ports, with one update of the lease table.
+     * Ports this JVM did not lease are left alone, and if there are none the table is not touched.
+     * Failures are ignored, the leases expire on their own.
+     * @param ports the ports
+     */
+    static void releaseHeld(Collection<Integer> ports) {
+        synchronized (LOCK) {
+            Set<Integer> release = new HashSet<>();
+            for (Integer port : ports) {
+                if (port != null && HELD.remove(port)) {
+                    release.add(port);
+                }
+            }
+            if (release.isEmpty()) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(LeaseFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    Map<Integer, Long> leases = read(channel, System.currentTimeMillis());
+                    if (leases.keySet().removeAll(release)) {
+                        write(channel, leases);
+                    }
+                }
+                finally {
+                    lock.release();
+                }
+            }
+            catch (IOException e) {
+                // the leases expire on their own
+            }
+        }
+    }
+
+    /**
+     * Whether a port currently has an unexpired lease
+     * @param port the port
+     * @return true if leased
+     * @throws IOException if the lease table cannot be read
+     */
+    public static boolean isLeased(int port) throws IOException {
+        synchronized (LOCK) {
+            try (FileChannel channel = FileChannel.open(LeaseFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return read(channel, System.currentTimeMillis()).containsKey(port);
+                }
+                finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private static int fromEphemeral(Map<Integer, Long> leases) throws IOException {
+        for (int x = 0; x < MAX_EPHEMERAL_TRIES; x++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                int port = socket.getLocalPort();
+                if (!leases.containsKey(port)) {
+                    return port;
+                }
+            }
+        }
+        throw new IOException("Unable to find an unleased port after " + MAX_EPHEMERAL_TRIES + " tries.");
+    }
+
+    private static int fromRange(Map<Integer, Long> leases) throws IOException {
+        int start = getWorkerRangeStart();
+        for (int x = 0; x < RangeSize; x++) {
+            int port = start + (RangeCursor++ % RangeSize);
+            if (!leases.containsKey(port) && NatsRunnerUtils.isPortAvailable(port)) {
+                return port;
+            }
+        }
+        throw new IOException("No port available in range " + start + "-" + (start + RangeSize - 1) + ".");
+    }
+
+    /**
+     * The first port of this worker's range. Workers are assigned ranges by the
+     * worker property value modulo the number of ranges that fit below {@value NatsRunnerUtils#MAX_PORT}.
+     * @return the port or -1 if ranges are not configured
+     */
+    public static int getWorkerRangeStart() {
+        if (RangeStart < 1 || RangeSize < 1) {
+            return -1;
+        }
+        int slots = Math.max(1, (NatsRunnerUtils.MAX_PORT - RangeStart + 1) / RangeSize);
+        long worker = 0;
+        String value = WorkerProperty == null ? null : System.getProperty(WorkerProperty);
+        if (value != null) {
+            try {
+                worker = Long.parseLong(value.trim());
+            }
+            catch (NumberFormatException e) {
+                worker = value.hashCode() & 0x7fffffff;
+            }
+        }
+        return RangeStart + (int)(worker % slots) * RangeSize;
+    }
+
+    private static Map<Integer, Long> read(FileChannel channel, long now) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int)channel.size());
+        channel.read(buffer, 0);
+        Map<Integer, Long> leases = new HashMap<>();
+        for (String line : new String(buffer.array(), StandardCharsets.US_ASCII).split("\n")) {
+            String[] split = line.trim().split(" ");
+            if (split.length == 2) {
+                try {
+                    long expires = Long.parseLong(split[1]);
+                    if (expires > now) {
+                        leases.put(Integer.parseInt(split[0]), expires);
+                    }
+                }
+                catch (NumberFormatException ignore) {
+                    // a garbled line is treated as an expired lease
+                }
+            }
+        }
+        return leases;
+    }
+
+    private static void write(FileChannel channel, Map<Integer, Long> leases) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Long> entry : leases.entrySet()) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.US_ASCII)), 0);
+        channel.force(false);
+    }
+
+    // ====================================================================================================
+    // Settings
+    // ====================================================================================================
+    public static Path getLeaseFile() {
+        return LeaseFile;
+    }
+
+    /**
+     * Set the lease table file. Every JVM that should coordinate must use the same file.
+     * @param leaseFile the file
+     */
+    public static void setLeaseFile(Path leaseFile) {
+        synchronized (LOCK) {
+            LeaseFile = leaseFile == null ? Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_LEASE_FILE_NAME) : leaseFile;
+        }
+    }
+
+    public static long getLeaseTtl() {
+        return LeaseTtl;
+    }
+
+    /**
+     * Set how long a lease that is never released is held
+     * @param leaseTtl the time in milliseconds
+     */
+    public static void setLeaseTtl(long leaseTtl) {
+        LeaseTtl = leaseTtl < 1 ? DEFAULT_LEASE_TTL : leaseTtl;
+    }
+
+    public static String getWorkerProperty() {
+        return WorkerProperty;
+    }
+
+    /**
+     * Set the system property that identifies the test worker, by default {@value #GRADLE_WORKER_PROPERTY}
+     * @param workerProperty the property name
+     */
+    public static void setWorkerProperty(String workerProperty) {
+        WorkerProperty = workerProperty;
+    }
+
+    /**
+     * Give each worker its own range of ports instead of using the system's ephemeral ports.
+     * @param rangeStart the first port of the first worker's range, less than 1 to turn ranges off
+     * @param rangeSize the number of ports in each worker's range
+     */
+    public static void setWorkerRanges(int rangeStart, int rangeSize) {
+        synchronized (LOCK) {
+            RangeStart = rangeStart;
+            RangeSize = rangeSize;
+            RangeCursor = 0;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Just enough of the client protocol to talk to a server the runner started, connect and make requests.
+ * Not a general purpose client, it does not handle TLS.
+ */
+final class ProtocolClient implements AutoCloseable {
+    static final byte[] PING_BYTES = "PING\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PONG_BYTES = "PONG\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final long timeoutMs;
+    private String inbox;
+    private int nextReply;
+
+    private ProtocolClient(Socket socket, long timeoutMs) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = socket.getOutputStream();
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Connect and complete the CONNECT / PING / PONG handshake
+     * @param host the host
+     * @param port the port
+     * @param user the user or null to connect without credentials
+     * @param password the password
+     * @param timeoutMs the timeout for the handshake, and for each later exchange
+     * @return the connected client
+     * @throws IOException if the server could not be reached or refused the connection
+     */
+    static ProtocolClient connect(String host, int port, String user, String password, long timeoutMs) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), (int)timeoutMs);
+            ProtocolClient client = new ProtocolClient(socket, timeoutMs);
+            long deadline = client.deadline();
+            String info = client.readLine(deadline);
+            if (!info.startsWith("INFO")) {
+                throw new IOException("Expected INFO, received: " + info);
+            }
+            client.out.write(connectBytes(user, password));
+            client.out.write(PING_BYTES);
+            client.out.flush();
+            String response = client.readLine(deadline);
+            if (!response.startsWith("PONG")) {
+                throw new IOException("Expected PONG, received: " + response);
+            }
+            return client;
+        }
+        catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    static byte[] connectBytes(String user, String password) {
+        if (user == null) {
+            return NatsServerRunner.CONNECT_BYTES;
+        }
+        String connect = new String(NatsServerRunner.CONNECT_BYTES, StandardCharsets.US_ASCII).trim();
+        connect = connect.substring(0, connect.length() - 1)
+            + ",\"user\":\"" + escape(user) + "\",\"pass\":\"" + escape(password) + "\"}\r\n";
+        return connect.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String s) {
+        return s == null ? "" : s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Publish a request and wait for its reply. Anything else that arrives in between is skipped.
+     * @param subject the subject
+     * @param payload the payload
+     * @return the reply payload
+     * @throws IOException if there is no reply in time, no one is listening or the server sent an error
+     */
+    String request(String subject, String payload) throws IOException {
+        if (inbox == null) {
+            inbox = "_INBOX." + UUID.randomUUID().toString().replace("-", "");
+            out.write(("SUB " + inbox + ".* 1\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        String reply = inbox + "." + (++nextReply);
+        byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+        out.write(("PUB " + subject + " " + reply + " " + data.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write(data);
+        out.write(CRLF);
+        out.flush();
+
+        long deadline = deadline();
+        while (true) {
+            String line = readLine(deadline);
+            if (line.startsWith("PING")) {
+                out.write(PONG_BYTES);
+                out.flush();
+            }
+            else if (line.startsWith("-ERR")) {
+                throw new IOException("Server error: " + line);
+            }
+            else if (line.startsWith("MSG ") || line.startsWith("HMSG ")) {
+                // MSG <subject> <sid> [reply] <size> or HMSG <subject> <sid> [reply] <header size> <total size>
+                String[] parts = line.split(" ");
+                boolean headers = line.startsWith("H");
+                int total = Integer.parseInt(parts[parts.length - 1]);
+                int headerSize = headers ? Integer.parseInt(parts[parts.length - 2]) : 0;
+                byte[] body = readBytes(total + 2, deadline); // including the CRLF
+                if (reply.equals(parts[1])) {
+                    if (headers && isNoResponders(new String(body, 0, headerSize, StandardCharsets.US_ASCII))) {
+                        throw new IOException("No responders for " + subject + ".");
+                    }
+                    return new String(body, headerSize, total - headerSize, StandardCharsets.UTF_8);
+                }
+            }
+            // +OK, INFO and replies to earlier requests are skipped
+        }
+    }
+
+    private static boolean isNoResponders(String headers) {
+        return headers.startsWith("NATS/1.0 503");
+    }
+
+    private byte[] readBytes(int len, long deadline) throws IOException {
+        byte[] bytes = new byte[len];
+        int read = 0;
+        while (read < len) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining < 1) {
+                throw new SocketTimeoutException("Timed out waiting for server protocol response.");
+            }
+            socket.setSoTimeout((int)remaining);
+            int n = in.read(bytes, read, len - read);
+            if (n == -1) {
+                throw new EOFException("Connection closed waiting for server protocol response.");
+            }
+            read += n;
+        }
+        return bytes;
+    }
+
+    long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    String readLine(long deadline) throws IOException {
+        return readProtocolLine(socket, in, deadline);
+    }
+
+    /**
+     * Read a protocol line, without the CRLF
+     * @param socket the socket, for setting the read timeout
+     * @param in the socket input
+     * @param deadline the System.nanoTime() by which the line must be read
+     * @return the line
+     * @throws IOException if the line was not read by the deadline or the connection closed
+     */
+    static String readProtocolLine(Socket socket, InputStream in, long deadline) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining < 1) {
+                throw new SocketTimeoutException("Timed out waiting for server protocol response.");
+            }
+            socket.setSoTimeout((int)remaining);
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Connection closed waiting for server protocol response.");
+            }
+            if (b == '\n') {
+                int len = sb.length();
+                return len > 0 && sb.charAt(len - 1) == '\r' ? sb.substring(0, len - 1) : sb.toString();
+            }
+            sb.append((char)b);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
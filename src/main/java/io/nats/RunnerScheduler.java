@@ -0,0 +1,146 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The scheduler shared by all runners for asynchronous startup and shutdown work.
+ * The scheduler threads only keep time. Anything that can block, like a socket check,
+ * a monitor request or waiting on a process, runs on a separate pool so that a few
+ * slow servers can't hold up the starts and shutdowns of all the others.
+ * Threads are daemon threads so they never keep the JVM alive.
+ */
+final class RunnerScheduler {
+    static final long EXIT_POLL_INTERVAL = 10;
+
+    private static final ScheduledExecutorService SCHEDULER;
+    private static final ExecutorService BLOCKING;
+
+    static {
+        AtomicInteger threadNo = new AtomicInteger();
+        ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            r -> {
+                Thread t = new Thread(r, "nats-server-runner-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        stpe.setRemoveOnCancelPolicy(true);
+        SCHEDULER = stpe;
+
+        AtomicInteger blockingNo = new AtomicInteger();
+        BLOCKING = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "nats-server-runner-io-" + blockingNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private RunnerScheduler() {}
+
+    static ScheduledExecutorService get() {
+        return SCHEDULER;
+    }
+
+    /**
+     * The pool for work that blocks on I/O or a process
+     * @return the executor
+     */
+    static ExecutorService blocking() {
+        return BLOCKING;
+    }
+
+    /**
+     * Run a task on the blocking pool after a delay, the scheduler only keeps the time
+     * @param task the task
+     * @param delay the delay in milliseconds
+     * @return the scheduled hand off
+     */
+    static ScheduledFuture<?> scheduleBlocking(Runnable task, long delay) {
+        return SCHEDULER.schedule(() -> BLOCKING.execute(task), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get a future that completes when the process has exited. The process is polled on the scheduler.
+     * @param process the process
+     * @return the future
+     */
+    static CompletableFuture<Void> whenExited(Process process) {
+        CompletableFuture<Void> exited = new CompletableFuture<>();
+        ScheduledFuture<?> poll = SCHEDULER.scheduleWithFixedDelay(() -> {
+            if (!process.isAlive()) {
+                exited.complete(null);
+            }
+        }, 0, EXIT_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+        exited.whenComplete((v, t) -> poll.cancel(false));
+        return exited;
+    }
+
+    /**
+     * Poll until the check passes. The next check is scheduled once the previous one finishes, so checks never overlap.
+     * @param check the check, run on the blocking pool. An exception thrown by the check fails the future.
+     * @param interval the delay between checks in milliseconds
+     * @param timeout how long to keep checking in milliseconds
+     * @param description what is being waited for, used in the timeout message
+     * @return a future that completes when the check passes or exceptionally with a {@link TimeoutException}
+     */
+    static CompletableFuture<Void> pollUntil(BooleanSupplier check, long interval, long timeout, String description) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        BLOCKING.execute(new Poll(done, check, interval, deadline, timeout, description));
+        return done;
+    }
+
+    private static final class Poll implements Runnable {
+        private final CompletableFuture<Void> done;
+        private final BooleanSupplier check;
+        private final long interval;
+        private final long deadline;
+        private final long timeout;
+        private final String description;
+
+        private Poll(CompletableFuture<Void> done, BooleanSupplier check, long interval, long deadline, long timeout, String description) {
+            this.done = done;
+            this.check = check;
+            this.interval = interval;
+            this.deadline = deadline;
+            this.timeout = timeout;
+            this.description = description;
+        }
+
+        @Override
+        public void run() {
+            if (done.isDone()) {
+                return;
+            }
+            try {
+                if (check.getAsBoolean()) {
+                    done.complete(null);
+                }
+                else if (System.nanoTime() - deadline > 0) {
+                    done.completeExceptionally(new TimeoutException("Timed out after " + timeout + "ms waiting for " + description + "."));
+                }
+                else {
+                    scheduleBlocking(this, interval);
+                }
+            }
+            catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }
+    }
+}
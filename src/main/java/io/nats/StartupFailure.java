@@ -0,0 +1,92 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import java.util.List;
+
+/**
+ * The reason a server failed to start, as best as can be determined from the server output
+ */
+public enum StartupFailure {
+    PORT_IN_USE,      // a listener could not bind its port
+    TLS_ERROR,        // tls configuration could not be loaded, i.e. missing cert or key file
+    CONFIG_ERROR,     // the configuration could not be parsed or was invalid
+    BINARY_NOT_FOUND, // the nats-server executable could not be run
+    PROCESS_EXITED,   // the process exited during startup for a reason that was not recognized
+    UNKNOWN;          // startup failed for some other reason, i.e. the connect validation failed
+
+    /**
+     * Determine the failure from the output the server wrote before it exited
+     * @param lines the startup output lines
+     * @return the failure
+     */
+    public static StartupFailure fromOutput(List<String> lines) {
+        return fromLine(findCauseLine(lines));
+    }
+
+    /**
+     * Find the output line that best explains the failure
+     * @param lines the startup output lines
+     * @return the line or null if no line looked like an error
+     */
+    public static String findCauseLine(List<String> lines) {
+        String first = null;
+        for (String line : lines) {
+            if (isErrorLine(line)) {
+                if (fromLine(line) != PROCESS_EXITED) {
+                    return line;
+                }
+                if (first == null) {
+                    first = line;
+                }
+            }
+        }
+        return first;
+    }
+
+    private static boolean isErrorLine(String line) {
+        // fatal config problems are written without the log prefix, i.e. nats-server: Parse error on line 2...
+        return line.contains("[FTL]") || line.contains("[ERR]") || line.startsWith(NatsRunnerUtils.DEFAULT_NATS_SERVER + ":");
+    }
+
+    private static StartupFailure fromLine(String line) {
+        if (line == null) {
+            return PROCESS_EXITED;
+        }
+        String lower = line.toLowerCase();
+        if (lower.contains("address already in use") || lower.contains("only one usage of each socket address")) {
+            return PORT_IN_USE;
+        }
+        if (lower.contains("tls") || lower.contains("certificate") || lower.contains("x509")) {
+            return TLS_ERROR;
+        }
+        if (lower.contains("parse error") || lower.contains("config") || line.startsWith(NatsRunnerUtils.DEFAULT_NATS_SERVER + ":")) {
+            return CONFIG_ERROR;
+        }
+        return PROCESS_EXITED;
+    }
+
+    /**
+     * Determine the failure from the exception thrown trying to run the process
+     * @param e the exception
+     * @return the failure
+     */
+    public static StartupFailure fromProcessStart(Exception e) {
+        String msg = e.getMessage();
+        if (msg != null && (msg.contains("error=2,") || msg.contains("No such file") || msg.contains("cannot find the file"))) {
+            return BINARY_NOT_FOUND;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,213 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Isolated
+public class AdmissionUtilsTest extends TestBase {
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertFalse(AdmissionUtils.isEnabled());
+        AdmissionUtils.Permit permit = AdmissionUtils.tryAcquire(Long.MAX_VALUE);
+        assertNotNull(permit);
+        assertEquals(0, AdmissionUtils.getLiveServers());
+        permit.release();
+        assertEquals(0, AdmissionUtils.getLiveServers());
+    }
+
+    @Test
+    public void testMaxServers() throws Exception {
+        try {
+            AdmissionUtils.setMaxServers(2);
+            AdmissionUtils.Permit p1 = AdmissionUtils.tryAcquire(10);
+            AdmissionUtils.Permit p2 = AdmissionUtils.tryAcquire(10);
+            assertNotNull(p1);
+            assertNotNull(p2);
+            assertNull(AdmissionUtils.tryAcquire(10));
+            assertEquals(2, AdmissionUtils.getLiveServers());
+            assertEquals(20, AdmissionUtils.getUsedMemory());
+
+            CompletableFuture<AdmissionUtils.Permit> queued = AdmissionUtils.acquireAsync(10);
+            assertFalse(queued.isDone());
+            p1.release();
+            p1.release(); // only counts once
+            AdmissionUtils.Permit p3 = queued.get(5, TimeUnit.SECONDS);
+            assertEquals(2, AdmissionUtils.getLiveServers());
+
+            AdmissionUtils.setAdmissionTimeout(100);
+            assertThrows(IOException.class, () -> AdmissionUtils.acquire(10));
+            assertThrows(ExecutionException.class, () -> AdmissionUtils.acquireAsync(10, 100).get(5, TimeUnit.SECONDS));
+
+            AdmissionUtils.checkGroup(Arrays.asList(10L, 10L));
+            assertThrows(IllegalStateException.class, () -> AdmissionUtils.checkGroup(Arrays.asList(10L, 10L, 10L)));
+            p2.release();
+            p3.release();
+            assertEquals(0, AdmissionUtils.getLiveServers());
+            assertEquals(0, AdmissionUtils.getUsedMemory());
+        }
+        finally {
+            reset();
+        }
+    }
+
+    @Test
+    public void testGroups() throws Exception {
+        try {
+            AdmissionUtils.setMaxServers(4);
+            List<Long> group = Arrays.asList(10L, 10L, 10L);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                // two groups that fit one at a time start at once, one is admitted whole and the other waits
+                Future<List<AdmissionUtils.Permit>> f1 = executor.submit(() -> AdmissionUtils.acquireAll(group, 10_000));
+                Future<List<AdmissionUtils.Permit>> f2 = executor.submit(() -> AdmissionUtils.acquireAll(group, 10_000));
+                long end = System.currentTimeMillis() + 5000;
+                while (!f1.isDone() && !f2.isDone()) {
+                    assertTrue(System.currentTimeMillis() < end);
+                    //noinspection BusyWait
+                    Thread.sleep(10);
+                }
+                Thread.sleep(200);
+                assertTrue(f1.isDone() ^ f2.isDone());
+                assertEquals(3, AdmissionUtils.getLiveServers()); // nothing partially admitted
+
+                Future<List<AdmissionUtils.Permit>> first = f1.isDone() ? f1 : f2;
+                Future<List<AdmissionUtils.Permit>> second = f1.isDone() ? f2 : f1;
+                for (AdmissionUtils.Permit permit : first.get()) {
+                    permit.release();
+                }
+                List<AdmissionUtils.Permit> permits = second.get(5, TimeUnit.SECONDS);
+                assertEquals(3, permits.size());
+                assertEquals(3, AdmissionUtils.getLiveServers());
+
+                assertThrows(IOException.class, () -> AdmissionUtils.acquireAll(group, 100));
+                assertThrows(IllegalStateException.class, () -> AdmissionUtils.acquireAll(Arrays.asList(10L, 10L, 10L, 10L, 10L), 100));
+                for (AdmissionUtils.Permit permit : permits) {
+                    permit.release();
+                }
+                assertEquals(0, AdmissionUtils.getLiveServers());
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+        finally {
+            reset();
+        }
+    }
+
+    @Test
+    public void testMemoryBudget() throws Exception {
+        try {
+            AdmissionUtils.setMemoryBudget(100);
+            AdmissionUtils.Permit big = AdmissionUtils.tryAcquire(500); // nothing running, always admitted
+            assertNotNull(big);
+            assertNull(AdmissionUtils.tryAcquire(1));
+            big.release();
+            AdmissionUtils.Permit p1 = AdmissionUtils.tryAcquire(60);
+            assertNotNull(p1);
+            assertNull(AdmissionUtils.tryAcquire(60));
+            AdmissionUtils.Permit p2 = AdmissionUtils.tryAcquire(40);
+            assertNotNull(p2);
+            p1.release();
+            p2.release();
+
+            assertEquals(AdmissionUtils.DEFAULT_SERVER_MEMORY, AdmissionUtils.estimateMemory(null));
+            assertEquals(AdmissionUtils.DEFAULT_SERVER_MEMORY + AdmissionUtils.DEFAULT_JS_MEMORY, AdmissionUtils.estimateMemory(JsConfig.builder().build()));
+            assertEquals(AdmissionUtils.DEFAULT_SERVER_MEMORY + 1000, AdmissionUtils.estimateMemory(JsConfig.builder().maxMemoryStore(1000).build()));
+            assertEquals(AdmissionUtils.DEFAULT_SERVER_MEMORY + 1024L * 1024 * 1024, AdmissionUtils.estimateMemory(JsConfig.builder()
+                .lines(Arrays.asList("jetstream {", "  max_mem_store: 1GB", "}")).build()));
+            assertEquals(AdmissionUtils.DEFAULT_SERVER_MEMORY + 2000, AdmissionUtils.estimateMemory(JsConfig.builder()
+                .lines(Arrays.asList("jetstream {", "  max_memory_store: \"2k\"", "}")).build()));
+            assertEquals(AdmissionUtils.DEFAULT_SERVER_MEMORY + 1000, AdmissionUtils.estimateMemory(JsConfig.builder()
+                .lines(Arrays.asList("jetstream {", "  max_mem: 1GB", "}")).maxMemoryStore(1000).build())); // typed wins
+
+            AdmissionUtils.checkGroup(Arrays.asList(60L, 40L));
+            assertThrows(IllegalStateException.class, () -> AdmissionUtils.checkGroup(Arrays.asList(60L, 41L)));
+            AdmissionUtils.checkGroup(Collections.singletonList(500L)); // a single server is always admitted
+        }
+        finally {
+            reset();
+        }
+    }
+
+    @Test
+    public void testAdmissionFile() throws Exception {
+        try {
+            Path file = Files.createTempFile(null, null);
+            long expires = System.currentTimeMillis() + 60_000;
+            Files.write(file, ("otherjvm 2 0 " + expires + "\nexpiredjvm 5 0 1\n").getBytes());
+            AdmissionUtils.setAdmissionFile(file);
+            AdmissionUtils.setMaxServers(3);
+
+            AdmissionUtils.Permit permit = AdmissionUtils.tryAcquire(10); // 2 in the other JVM, the expired one doesn't count
+            assertNotNull(permit);
+            assertNull(AdmissionUtils.tryAcquire(10));
+            String content = new String(Files.readAllBytes(file));
+            assertTrue(content.contains("otherjvm"));
+            assertFalse(content.contains("expiredjvm"));
+            assertEquals(2, content.split("\n").length);
+
+            permit.release();
+            assertFalse(new String(Files.readAllBytes(file)).contains(" 1 10 "));
+        }
+        finally {
+            reset();
+        }
+    }
+
+    @Test
+    public void testRunnersQueue() throws Exception {
+        try {
+            AdmissionUtils.setMaxServers(1);
+            try (NatsServerRunner first = NatsServerRunner.builder().build()) {
+                NatsServerRunner second = NatsServerRunner.builder().doNotStart().build();
+                CompletableFuture<NatsServerRunner> started = second.startAsync();
+                Thread.sleep(500);
+                assertFalse(started.isDone());
+                first.shutdown();
+                validateConnection(started.get(10, TimeUnit.SECONDS));
+                second.shutdown();
+            }
+            assertEquals(0, AdmissionUtils.getLiveServers());
+        }
+        finally {
+            reset();
+        }
+    }
+
+    private static void reset() {
+        AdmissionUtils.setMaxServers(0);
+        AdmissionUtils.setMemoryBudget(0);
+        AdmissionUtils.setAdmissionFile(null);
+        AdmissionUtils.setAdmissionTimeout(AdmissionUtils.DEFAULT_ADMISSION_TIMEOUT);
+    }
+}
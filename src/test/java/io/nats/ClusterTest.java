@@ -19,8 +19,13 @@ import org.junit.jupiter.api.parallel.Isolated;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 import static io.nats.ClusterUtils.DEFAULT_CLUSTER_DEFAULTS;
 import static io.nats.ClusterUtils.createClusterInserts;
@@ -79,6 +84,91 @@ public class ClusterTest extends TestBase {
         }
     }
 
+    @Test
+    public void testClusterRunner() throws Exception {
+        try (NatsClusterRunner cluster = new NatsClusterRunner()) {
+            assertEquals(DEFAULT_CLUSTER_DEFAULTS.getCount(), cluster.size());
+            for (int x = 0; x < cluster.size(); x++) {
+                NatsServerRunner runner = cluster.getRunner(x);
+                assertEquals(cluster.getClusterInserts().get(x).node.port, runner.getNatsPort());
+                validateConfigLines(runner, Collections.singletonList("name: cluster"));
+                validateConnection(runner);
+            }
+            cluster.shutdownAsync().get(5, TimeUnit.SECONDS);
+            for (NatsServerRunner runner : cluster.getRunners()) {
+                validateNotConnected(runner);
+            }
+        }
+
+        Path jsStoreDirBase = Files.createTempDirectory(null);
+        try (NatsClusterRunner cluster = NatsClusterRunner.builder()
+            .clusterDefaults(new ClusterDefaults().count(2))
+            .jsStoreDirBase(jsStoreDirBase)
+            .runnerCustomizer(b -> b.outputLevel(Level.SEVERE))
+            .build())
+        {
+            assertEquals(2, cluster.size());
+            for (NatsServerRunner runner : cluster.getRunners()) {
+                validateCommandLine(runner, false, true);
+                validateConnection(runner);
+            }
+        }
+    }
+
+    @Test
+    public void testClusterRunnerWaitForRoutes() throws Exception {
+        try (NatsClusterRunner cluster = NatsClusterRunner.builder()
+            .clusterDefaults(new ClusterDefaults().monitor(true).dynamicPorts(true))
+            .waitForRoutes()
+            .build())
+        {
+            for (ClusterInsert ci : cluster.getClusterInserts()) {
+                assertEquals(cluster.size() - 1, MonitorUtils.getRoutedServerCount(MonitorUtils.getMonitorHost(ci.node), ci.node.monitor));
+            }
+        }
+
+        try (NatsClusterRunner cluster = new NatsClusterRunner()) {
+            assertThrows(IllegalStateException.class, () -> cluster.routesReadyAsync(1000));
+        }
+    }
+
+    @Test
+    public void testClusterRunnerSeedRoutes() throws Exception {
+        ClusterDefaults cd = new ClusterDefaults()
+            .count(5)
+            .monitor(true)
+            .dynamicPorts(true)
+            .seedCount(1)
+            .routesIncludeFile(true);
+        try (NatsClusterRunner cluster = NatsClusterRunner.builder()
+            .clusterDefaults(cd)
+            .waitForRoutes()
+            .build())
+        {
+            // gossip completes the mesh even though every node only knows the seed
+            for (ClusterInsert ci : cluster.getClusterInserts()) {
+                assertEquals(cluster.size() - 1, MonitorUtils.getRoutedServerCount(MonitorUtils.getMonitorHost(ci.node), ci.node.monitor));
+            }
+        }
+    }
+
+    @Test
+    public void testClusterRunnerWaitForJetStream() throws Exception {
+        try (NatsClusterRunner cluster = NatsClusterRunner.builder()
+            .clusterDefaults(new ClusterDefaults().monitor(true))
+            .jsStoreDirBase(Files.createTempDirectory(null))
+            .waitForJetStream()
+            .build())
+        {
+            List<Map<String, Object>> reports = new ArrayList<>();
+            for (ClusterInsert ci : cluster.getClusterInserts()) {
+                reports.add(MonitorUtils.getMonitorJson(MonitorUtils.getMonitorHost(ci.node), ci.node.monitor, MonitorUtils.JSZ));
+            }
+            assertTrue(MonitorUtils.isMetaReady(reports, cluster.size()));
+            assertThrows(IllegalStateException.class, () -> cluster.waitForStream("not-a-stream", 200));
+        }
+    }
+
     @Test
     public void testClusterNodeConstruction() {
         ClusterNode cn = new ClusterNode("name", "server", 1234, 5678);
@@ -177,4 +267,56 @@ public class ClusterTest extends TestBase {
         assertNotNull(ci.configInserts);
         assertEquals("insert", ci.configInserts[0]);
     }
+
+    @Test
+    public void testSuperClusterRunner() throws Exception {
+        try (NatsSuperClusterRunner superCluster = NatsSuperClusterRunner.builder()
+            .clusters(2, 2)
+            .waitForGateways()
+            .build())
+        {
+            assertEquals(2, superCluster.getClusters().size());
+            assertEquals(4, superCluster.getRunners().size());
+            for (NatsClusterRunner cluster : superCluster.getClusters()) {
+                for (ClusterInsert ci : cluster.getClusterInserts()) {
+                    assertEquals(1, MonitorUtils.getOutboundGatewayCount(MonitorUtils.getMonitorHost(ci.node), ci.node.monitor));
+                }
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> NatsSuperClusterRunner.builder().clusters(1, 3).build());
+    }
+
+    @Test
+    public void testLeafNodeRunner() throws Exception {
+        try (NatsLeafNodeRunner leafNodes = NatsLeafNodeRunner.builder()
+            .leafCount(3)
+            .waitForLeaves()
+            .build())
+        {
+            assertEquals(1, leafNodes.getHubRunners().size());
+            assertEquals(3, leafNodes.getLeafRunners().size());
+            assertEquals(4, leafNodes.getRunners().size());
+            assertTrue(leafNodes.getHub().getConfigLines().contains("  listen: " + DEFAULT_CLUSTER_DEFAULTS.getHost() + ":" + leafNodes.getHubLeafPorts().get(0)));
+        }
+
+        NatsLeafNodeRunner clusterHub = NatsLeafNodeRunner.builder()
+            .hubCluster(new ClusterDefaults().monitor(true).dynamicPorts(true).routesIncludeFile(true))
+            .leafCount(2)
+            .waitForLeaves()
+            .build();
+        try (NatsLeafNodeRunner leafNodes = clusterHub) {
+            assertEquals(3, leafNodes.getHubRunners().size());
+            assertEquals(3, leafNodes.getHubLeafPorts().size());
+            assertEquals(3, leafNodes.getHubClusterInserts().size());
+            for (int x = 0; x < 3; x++) {
+                assertEquals(leafNodes.getHubClusterInserts().get(x).node.port, leafNodes.getHubRunners().get(x).getNatsPort());
+            }
+        }
+        for (ClusterInsert ci : clusterHub.getHubClusterInserts()) {
+            String include = Arrays.stream(ci.configInserts).filter(l -> l.trim().startsWith("include")).findFirst().orElse(null);
+            assertNotNull(include);
+            assertFalse(Files.exists(Paths.get(include.substring(include.indexOf('"') + 1, include.lastIndexOf('"')))));
+        }
+    }
 }
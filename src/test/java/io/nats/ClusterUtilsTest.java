@@ -16,9 +16,13 @@ package io.nats;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static io.nats.ClusterUtils.DEFAULT_CLUSTER_DEFAULTS;
 import static io.nats.ClusterUtils.createClusterInserts;
@@ -68,6 +72,76 @@ public class ClusterUtilsTest extends TestBase {
         validateClusterInserts(2, p, l, c, s, h, true, m, jsStoreDirBase, createClusterInserts(cd, jsStoreDirBase));
     }
 
+    @Test
+    public void testCreateClusterInsertsDynamicPorts() {
+        ClusterDefaults cd = new ClusterDefaults().count(3).monitor(true).dynamicPorts(true);
+        assertTrue(cd.hasDynamicPorts());
+        List<ClusterInsert> inserts = createClusterInserts(cd);
+        assertEquals(3, inserts.size());
+
+        Set<Integer> ports = new HashSet<>();
+        for (ClusterInsert ci : inserts) {
+            assertTrue(ports.add(ci.node.port));
+            assertTrue(ports.add(ci.node.listen));
+            assertNotNull(ci.node.monitor);
+            assertTrue(ports.add(ci.node.monitor));
+        }
+
+        for (ClusterInsert ci : inserts) {
+            String s = ci.toString();
+            assertTrue(s.contains("port: " + ci.node.port));
+            assertTrue(s.contains("http: " + ci.node.monitor));
+            assertTrue(s.contains("listen: " + ci.node.host + ":" + ci.node.listen));
+            for (ClusterInsert other : inserts) {
+                if (other != ci) {
+                    assertTrue(s.contains("nats-route://" + ci.node.host + ":" + other.node.listen));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCreateClusterInsertsSeeds() throws Exception {
+        ClusterDefaults cd = new ClusterDefaults().count(5).seedCount(2);
+        assertEquals(2, cd.getSeedCount());
+        List<ClusterInsert> inserts = createClusterInserts(cd);
+        int seed0 = inserts.get(0).node.listen;
+        int seed1 = inserts.get(1).node.listen;
+        for (int x = 0; x < inserts.size(); x++) {
+            ClusterInsert ci = inserts.get(x);
+            String s = ci.toString();
+            assertEquals(x != 0, s.contains("nats-route://" + ci.node.host + ":" + seed0));
+            assertEquals(x != 1, s.contains("nats-route://" + ci.node.host + ":" + seed1));
+            for (int y = 2; y < inserts.size(); y++) {
+                assertFalse(s.contains("nats-route://" + ci.node.host + ":" + inserts.get(y).node.listen));
+            }
+        }
+
+        cd.routesIncludeFile(true);
+        assertTrue(cd.hasRoutesIncludeFile());
+        inserts = createClusterInserts(cd);
+        String include = null;
+        for (ClusterInsert ci : inserts) {
+            String s = ci.toString();
+            assertFalse(s.contains("nats-route://"));
+            String line = Arrays.stream(ci.configInserts).filter(l -> l.trim().startsWith("include")).findFirst().orElse(null);
+            assertNotNull(line);
+            if (include == null) {
+                include = line;
+            }
+            assertEquals(include, line);
+        }
+        String fileName = include.substring(include.indexOf('"') + 1, include.lastIndexOf('"'));
+        assertTrue(Paths.get(fileName).isAbsolute());
+        List<String> routeLines = Files.readAllLines(Paths.get(fileName));
+        assertEquals(4, routeLines.size()); // routes: [, 2 seeds, ]
+        assertTrue(routeLines.get(1).endsWith(":" + seed0));
+        assertTrue(routeLines.get(2).endsWith(":" + seed1));
+
+        ClusterUtils.deleteRoutesIncludeFiles(inserts);
+        assertFalse(Files.exists(Paths.get(fileName)));
+    }
+
     private static void validateClusterInserts(int count,
                                                int basePort,
                                                int baseListen,
@@ -108,4 +182,56 @@ public class ClusterUtilsTest extends TestBase {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreateSuperClusterInserts() {
+        List<ClusterDefaults> clusters = Arrays.asList(
+            new ClusterDefaults().clusterName("east").serverNamePrefix("east").count(2).dynamicPorts(true),
+            new ClusterDefaults().clusterName("west").serverNamePrefix("west").count(3).dynamicPorts(true));
+        List<List<ClusterInsert>> superInserts = ClusterUtils.createSuperClusterInserts(clusters);
+        assertEquals(2, superInserts.size());
+        assertEquals(2, superInserts.get(0).size());
+        assertEquals(3, superInserts.get(1).size());
+        for (ClusterInsert ci : superInserts.get(0)) {
+            String s = ci.toString();
+            assertTrue(s.contains("gateway {"));
+            assertTrue(s.contains("  name: east"));
+            assertTrue(s.contains("{name: \"west\", urls: ["));
+            assertFalse(s.contains("{name: \"east\""));
+            assertEquals(3, s.split("nats://").length - 1);
+        }
+        for (ClusterInsert ci : superInserts.get(1)) {
+            String s = ci.toString();
+            assertTrue(s.contains("  name: west"));
+            assertTrue(s.contains("{name: \"east\", urls: ["));
+            assertEquals(2, s.split("nats://").length - 1);
+        }
+
+        // client, route and gateway port of each node, no monitor
+        Set<Integer> ports = ClusterUtils.insertPorts(superInserts.get(0));
+        assertEquals(6, ports.size());
+        for (ClusterInsert ci : superInserts.get(0)) {
+            assertTrue(ports.contains(ci.node.port));
+            assertTrue(ports.contains(ci.node.listen));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> ClusterUtils.createSuperClusterInserts(
+            Arrays.asList(new ClusterDefaults(), new ClusterDefaults())));
+        assertThrows(IllegalArgumentException.class, () -> ClusterUtils.createSuperClusterInserts(
+            Arrays.asList(new ClusterDefaults().clusterName("east"), new ClusterDefaults().clusterName("west"))));
+        assertEquals(2, ClusterUtils.createSuperClusterInserts(Arrays.asList(
+            new ClusterDefaults().clusterName("east"),
+            new ClusterDefaults().clusterName("west").portStart(5220).listenStart(5230))).size());
+    }
+
+    @Test
+    public void testCreateLeafNodeLines() {
+        List<String> listen = ClusterUtils.createLeafNodeListenLines("127.0.0.1", 7422);
+        assertEquals(Arrays.asList("leafnodes {", "  listen: 127.0.0.1:7422", "}"), listen);
+
+        List<String> remotes = ClusterUtils.createLeafNodeRemoteLines(Arrays.asList("nats-leaf://127.0.0.1:7422", "nats-leaf://127.0.0.1:7423"));
+        assertEquals(5, remotes.size());
+        assertEquals("leafnodes {", remotes.get(0));
+        assertEquals("    {urls: [\"nats-leaf://127.0.0.1:7422\", \"nats-leaf://127.0.0.1:7423\"]}", remotes.get(2));
+    }
+}
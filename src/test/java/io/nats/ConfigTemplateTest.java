@@ -0,0 +1,95 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigTemplateTest extends TestBase {
+
+    @Test
+    public void testCompile() throws Exception {
+        ConfigTemplate template = ConfigTemplate.forFile(Paths.get(SOURCE_CONFIG_FILE_PATH + "config_port_mapped_ws_mapped.conf"));
+        assertSame(template, ConfigTemplate.forFile(Paths.get(SOURCE_CONFIG_FILE_PATH + "config_port_mapped_ws_mapped.conf")));
+        assertTrue(template.isParsed());
+
+        List<ConfigTemplate.Slot> slots = template.getSlots();
+        assertEquals(2, slots.size());
+        assertEquals(ConfigTemplate.SlotType.MAPPED_PORT, slots.get(0).type);
+        assertEquals("p", slots.get(0).key);
+        assertTrue(slots.get(0).topLevel);
+        assertEquals("ws", slots.get(1).key);
+        assertEquals("websocket", slots.get(1).listener);
+        assertEquals(3, template.getLiterals().size());
+        assertTrue(template.getLiterals().get(0).endsWith("port: "));
+        assertTrue(template.getLiterals().get(2).contains("no_tls: true"));
+
+        template = ConfigTemplate.forLines(Arrays.asList("http_port: 8222", "jetstream {max_mem_store: 1GB}", "leaf { port: 7422 }"));
+        assertSame(template, ConfigTemplate.forLines(Arrays.asList("http_port: 8222", "jetstream {max_mem_store: 1GB}", "leaf { port: 7422 }")));
+        slots = template.getSlots();
+        assertEquals(2, slots.size());
+        assertEquals(ConfigTemplate.SlotType.JETSTREAM, slots.get(0).type);
+        assertEquals(ConfigTemplate.SlotType.USER_PORT, slots.get(1).type);
+        assertEquals("leafnodes", slots.get(1).listener);
+        assertEquals(Arrays.asList("http_port: 8222\n", "\nleaf { ", " }"), template.getLiterals());
+
+        template = ConfigTemplate.forLines(Arrays.asList("bad"));
+        assertFalse(template.isParsed());
+        assertEquals(Arrays.asList("bad"), template.getLiterals());
+        assertTrue(ConfigTemplate.forLines(Arrays.asList()).isEmpty());
+    }
+
+    @Test
+    public void testFileChanged() throws Exception {
+        Path path = Files.createTempFile("config_template", ".conf");
+        try {
+            Files.write(path, "port: 00000\n".getBytes(StandardCharsets.UTF_8));
+            long modified = path.toFile().lastModified();
+            assertEquals(1, ConfigTemplate.forFile(path).getSlots().size());
+            // same size and time stamp, still seen as changed
+            Files.write(path, "debug: true\n".getBytes(StandardCharsets.UTF_8));
+            assertTrue(path.toFile().setLastModified(modified));
+            assertEquals(0, ConfigTemplate.forFile(path).getSlots().size());
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testWriteDeduplicated() throws Exception {
+        String unique = "server_name: " + System.nanoTime();
+        File f1 = ConfigTemplate.write(Arrays.asList(unique, "port: 4222"));
+        File f2 = ConfigTemplate.write(Arrays.asList(unique, "port: 4222"));
+        File f3 = ConfigTemplate.write(Arrays.asList(unique, "port: 4223"));
+        try {
+            assertEquals(f1, f2);
+            assertNotEquals(f1, f3);
+            assertEquals(Arrays.asList(unique, "port: 4222"), Files.readAllLines(f1.toPath()));
+        }
+        finally {
+            Files.deleteIfExists(f1.toPath());
+            Files.deleteIfExists(f3.toPath());
+        }
+    }
+}
@@ -20,7 +20,9 @@ import java.nio.file.Files;
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JsConfigTest extends TestBase {
 
@@ -87,6 +89,42 @@ public class JsConfigTest extends TestBase {
         assertThrows(IllegalArgumentException.class, () -> toConfig("jetstream: x"));
     }
 
+    @Test
+    public void testTypedOptions() throws IOException {
+        JsConfig jsConfig = JsConfig.builder()
+            .storeDir(Files.createTempDirectory(null))
+            .lines(Arrays.asList("jetstream {", "max_mem_store: 1GB,", "max_file_store: 2GB,", "limits: {a: 1, b: 2}", "}"))
+            .maxMemoryStore(1000)
+            .syncInterval(500)
+            .maxBufferedMsgs(10)
+            .domain("hub")
+            .uniqueTag("az:")
+            .build();
+        assertEquals(Arrays.asList(
+            "jetstream {",
+            "    max_file_store:2GB,",
+            "    limits:{a:1,b:2},",
+            "    max_memory_store: 1000,",
+            "    sync_interval: 500ms,",
+            "    max_buffered_msgs: 10,",
+            "    domain: \"hub\",",
+            "    unique_tag: \"az:\",",
+            "    " + jsConfig.storeDir,
+            "}"), jsConfig.configInserts);
+        assertEquals("1000", jsConfig.options.get(JsConfig.MAX_MEMORY_STORE));
+
+        assertEquals("always", JsConfig.builder().profile(JsProfile.DURABLE).build().options.get(JsConfig.SYNC_INTERVAL));
+        JsConfig fast = JsConfig.builder().profile(JsProfile.FAST).build();
+        assertEquals("5m", fast.options.get(JsConfig.SYNC_INTERVAL));
+        assertTrue(fast.options.containsKey(JsConfig.MAX_FILE_STORE));
+
+        assertThrows(IllegalArgumentException.class, () -> JsConfig.builder().syncInterval("sometimes"));
+        assertThrows(IllegalArgumentException.class, () -> JsConfig.builder().syncInterval(0));
+        assertThrows(IllegalArgumentException.class, () -> JsConfig.builder().maxFileStore(0));
+        assertThrows(IllegalArgumentException.class, () -> JsConfig.builder().domain("a.b"));
+        assertThrows(IllegalArgumentException.class, () -> JsConfig.builder().uniqueTag(""));
+    }
+
     private static void validate3(String testString) throws IOException {
         validate3(toConfig(testString));
         validate3(toConfig(colonize(testString)));
@@ -116,6 +154,23 @@ public class JsConfigTest extends TestBase {
     private static String colonize(String jsString) {
         return jsString.replace("jetstream", "jetstream:");
     }
+    @Test
+    public void testSizes() throws IOException {
+        assertEquals(1000, JsConfig.parseSize("1000"));
+        assertEquals(2000, JsConfig.parseSize("2k"));
+        assertEquals(2048, JsConfig.parseSize("2KB"));
+        assertEquals(3L * 1024 * 1024, JsConfig.parseSize("3 MiB"));
+        assertEquals(1000L * 1000 * 1000, JsConfig.parseSize("1G"));
+        assertEquals(1024L * 1024 * 1024 * 1024, JsConfig.parseSize("1tb"));
+        assertEquals(-1, JsConfig.parseSize("lots"));
+        assertEquals(-1, JsConfig.parseSize("-1"));
+
+        JsConfig config = toConfig("jetstream {\n  max_mem: 1GB\n  domain: hub\n}");
+        assertEquals("1GB", config.getOption(JsConfig.MAX_MEMORY_STORE));
+        assertEquals("hub", config.getOption(JsConfig.DOMAIN));
+        assertNull(config.getOption(JsConfig.MAX_FILE_STORE));
+    }
+
     private static JsConfig toConfig(String testString) throws IOException {
         return new JsConfig(Arrays.asList(testString.split("\\n")));
     }
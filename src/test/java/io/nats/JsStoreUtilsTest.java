@@ -0,0 +1,136 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Isolated
+public class JsStoreUtilsTest extends TestBase {
+
+    @Test
+    public void testSnapshotAndClone() throws Exception {
+        Path original = JsStoreUtils.getFixtureDir();
+        JsStoreUtils.setFixtureDir(Files.createTempDirectory(null));
+        try {
+            Path store = Files.createTempDirectory(null);
+            Path stream = store.resolve("jetstream/$G/streams/stream");
+            Files.createDirectories(stream);
+            write(stream.resolve("data"), "one");
+            write(stream.resolve("meta.inf"), "meta");
+
+            assertFalse(JsStoreUtils.hasSnapshot("fixture"));
+            assertThrows(IOException.class, () -> JsStoreUtils.clone("fixture"));
+            Path snapshot = JsStoreUtils.snapshot(store, "fixture");
+            assertTrue(JsStoreUtils.hasSnapshot("fixture"));
+            Path snapStream = snapshot.resolve("jetstream/$G/streams/stream");
+
+            Path clone = JsStoreUtils.clone("fixture");
+            Path cloneStream = clone.resolve("jetstream/$G/streams/stream");
+            for (String file : new String[] {"data", "meta.inf"}) {
+                assertFalse(Files.isSameFile(snapStream.resolve(file), cloneStream.resolve(file)));
+                assertEquals(read(snapStream.resolve(file)), read(cloneStream.resolve(file)));
+            }
+            try (Stream<Path> files = Files.list(clone)) {
+                assertEquals(1, files.count()); // only the jetstream directory
+            }
+
+            // the clone is independent of the snapshot
+            write(cloneStream.resolve("data"), "changed");
+            assertEquals("one", read(snapStream.resolve("data")));
+            JsStoreUtils.emptyDirectory(clone);
+            assertTrue(Files.exists(clone));
+            assertEquals("one", read(snapStream.resolve("data")));
+
+            // replaced
+            write(stream.resolve("data"), "two");
+            JsStoreUtils.snapshot(store, "fixture");
+            assertEquals("two", read(snapStream.resolve("data")));
+            assertEquals("two", read(JsStoreUtils.clone("fixture").resolve("jetstream/$G/streams/stream/data")));
+        }
+        finally {
+            JsStoreUtils.setFixtureDir(original);
+        }
+    }
+
+    @Test
+    public void testServerFromClone() throws Exception {
+        Path original = JsStoreUtils.getFixtureDir();
+        JsStoreUtils.setFixtureDir(Files.createTempDirectory(null));
+        try {
+            NatsServerRunner runner = NatsServerRunner.builder().jetstream().build();
+            try (ProtocolClient client = ProtocolClient.connect("localhost", runner.getNatsPort(), null, null, 5000)) {
+                client.request("$JS.API.STREAM.CREATE.fixture", "{\"name\":\"fixture\",\"subjects\":[\"fixture\"]}");
+            }
+            assertThrows(IllegalStateException.class, () -> JsStoreUtils.snapshot(runner, "server"));
+            runner.shutdown();
+            JsStoreUtils.snapshot(runner, "server");
+
+            try (NatsServerRunner clone = NatsServerRunner.builder().jsStoreDir(JsStoreUtils.clone("server")).build();
+                 ProtocolClient client = ProtocolClient.connect("localhost", clone.getNatsPort(), null, null, 5000))
+            {
+                assertTrue(client.request("$JS.API.STREAM.NAMES", "").contains("fixture"));
+            }
+        }
+        finally {
+            JsStoreUtils.setFixtureDir(original);
+        }
+    }
+
+    @Test
+    public void testRamStoreLocation() throws Exception {
+        Path originalRoot = JsStoreUtils.getRamStoreRoot();
+        long originalBudget = JsStoreUtils.getRamStoreBudget();
+        Path root = Files.createTempDirectory(null); // stands in for a tmpfs
+        JsStoreUtils.setRamStoreRoot(root);
+        JsStoreUtils.setRamStoreBudget(JsStoreUtils.getRamStoreUsage() + 1000);
+        try {
+            assertFalse(JsStoreUtils.createStoreDir(JsStoreLocation.DISK).startsWith(root));
+            Path ram = new JsConfig(JsStoreLocation.RAM).storeDirPath;
+            assertTrue(ram.startsWith(root));
+
+            Files.write(ram.resolve("data"), new byte[1000]);
+            assertFalse(JsStoreUtils.createStoreDir(JsStoreLocation.RAM).startsWith(root)); // over budget
+
+            JsStoreUtils.emptyDirectory(ram);
+            assertTrue(JsStoreUtils.createStoreDir(JsStoreLocation.RAM).startsWith(root));
+
+            NatsRunnerUtils.setDefaultJsStoreLocation(JsStoreLocation.RAM);
+            assertTrue(new JsConfig().storeDirPath.startsWith(root));
+
+            JsStoreUtils.setRamStoreRoot(null);
+            assertFalse(JsStoreUtils.createStoreDir(JsStoreLocation.RAM).startsWith(root));
+        }
+        finally {
+            NatsRunnerUtils.setDefaultJsStoreLocation(JsStoreLocation.DISK);
+            JsStoreUtils.setRamStoreRoot(originalRoot);
+            JsStoreUtils.setRamStoreBudget(originalBudget);
+        }
+    }
+
+    private static void write(Path path, String s) throws IOException {
+        Files.write(path, s.getBytes());
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path));
+    }
+}
@@ -0,0 +1,67 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonTest extends TestBase {
+
+    @Test
+    public void testParse() {
+        String routez = "{\n" +
+            "  \"server_id\": \"NABC\",\n" +
+            "  \"now\": \"2025-01-01T00:00:00.000Z\",\n" +
+            "  \"num_routes\": 2,\n" +
+            "  \"routes\": [\n" +
+            "    {\"rid\": 1, \"remote_id\": \"NDEF\", \"did_solicit\": true, \"rtt\": \"1ms\", \"pending_size\": 0},\n" +
+            "    {\"rid\": 2, \"remote_id\": \"NDEF\", \"did_solicit\": false, \"ratio\": 1.5e2, \"name\": \"a\\\"b\\u0041\"}\n" +
+            "  ],\n" +
+            "  \"nothing\": null\n" +
+            "}";
+        Map<String, Object> map = Json.parseObject(routez);
+        assertEquals("NABC", Json.getString(map, "server_id"));
+        assertEquals(2, Json.getLong(map, "num_routes", -1));
+        assertEquals(-1, Json.getLong(map, "missing", -1));
+        assertTrue(map.containsKey("nothing"));
+        assertNull(map.get("nothing"));
+
+        List<Map<String, Object>> routes = Json.getObjectList(map, "routes");
+        assertEquals(2, routes.size());
+        assertTrue(Json.getBoolean(routes.get(0), "did_solicit"));
+        assertFalse(Json.getBoolean(routes.get(1), "did_solicit"));
+        assertEquals(150.0, routes.get(1).get("ratio"));
+        assertEquals("a\"bA", Json.getString(routes.get(1), "name"));
+
+        assertTrue(Json.getObjectList(map, "missing").isEmpty());
+        assertNull(Json.getObject(map, "routes"));
+        assertEquals(0, Json.parseObject("{}").size());
+        assertEquals(0, ((List<?>)Json.parse(" [ ] ")).size());
+    }
+
+    @Test
+    public void testParseErrors() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\" 1}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[1 2]"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{} x"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("tru"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[]"));
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static io.nats.MonitorUtils.isMetaReady;
+import static io.nats.MonitorUtils.isStreamReady;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonitorUtilsTest extends TestBase {
+
+    private static Map<String, Object> jsz(String leader, String replicas) {
+        return Json.parseObject("{\"meta_cluster\": {\"name\": \"cluster\", \"leader\": \"" + leader + "\", \"cluster_size\": 3"
+            + (replicas == null ? "" : ", \"replicas\": [" + replicas + "]") + "}}");
+    }
+
+    @Test
+    public void testIsMetaReady() {
+        String current = "{\"name\": \"server1\", \"current\": true}, {\"name\": \"server2\", \"current\": true}";
+        String behind = "{\"name\": \"server1\", \"current\": true}, {\"name\": \"server2\", \"current\": false}";
+
+        List<Map<String, Object>> ready = Arrays.asList(jsz("server0", current), jsz("server0", null), jsz("server0", null));
+        assertTrue(isMetaReady(ready, 3));
+
+        List<Map<String, Object>> notCurrent = Arrays.asList(jsz("server0", behind), jsz("server0", null), jsz("server0", null));
+        assertFalse(isMetaReady(notCurrent, 3));
+
+        List<Map<String, Object>> noLeader = Arrays.asList(jsz("", null), jsz("", null), jsz("", null));
+        assertFalse(isMetaReady(noLeader, 3));
+
+        List<Map<String, Object>> disagree = Arrays.asList(jsz("server0", current), jsz("server1", null), jsz("server0", null));
+        assertFalse(isMetaReady(disagree, 3));
+
+        assertTrue(isMetaReady(Collections.singletonList(jsz("server0", null)), 1));
+    }
+
+    private static Map<String, Object> streams(String name, String leader, int numReplicas, String replicas) {
+        return Json.parseObject("{\"account_details\": [{\"name\": \"$G\", \"stream_detail\": [{\"name\": \"" + name + "\","
+            + " \"config\": {\"num_replicas\": " + numReplicas + "},"
+            + " \"cluster\": {\"leader\": \"" + leader + "\", \"replicas\": [" + replicas + "]}}]}]}");
+    }
+
+    @Test
+    public void testIsStreamReady() {
+        String current = "{\"name\": \"server1\", \"current\": true}, {\"name\": \"server2\", \"current\": true}";
+        String behind = "{\"name\": \"server1\", \"current\": true}, {\"name\": \"server2\", \"current\": false}";
+        String partial = "{\"name\": \"server1\", \"current\": true}";
+
+        assertTrue(isStreamReady(Collections.singletonList(streams("s", "server0", 3, current)), "s"));
+        assertFalse(isStreamReady(Collections.singletonList(streams("s", "server0", 3, behind)), "s"));
+        assertFalse(isStreamReady(Collections.singletonList(streams("s", "server0", 3, partial)), "s"));
+        assertFalse(isStreamReady(Collections.singletonList(streams("s", "", 3, current)), "s"));
+        assertFalse(isStreamReady(Collections.singletonList(streams("s", "server0", 3, current)), "other"));
+        assertTrue(isStreamReady(Collections.singletonList(streams("s", "server0", 1, "")), "s"));
+    }
+}
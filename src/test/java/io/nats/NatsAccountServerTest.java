@@ -0,0 +1,71 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Isolated
+public class NatsAccountServerTest extends TestBase {
+
+    @Test
+    public void testLeaseAndRelease() throws Exception {
+        try (NatsAccountServer server = NatsAccountServer.builder().build()) {
+            NatsServerRunner runner = server.getRunner();
+            validateConnection(runner); // no credentials, base account
+
+            NatsAccountServer.AccountLease lease1 = server.lease();
+            NatsAccountServer.AccountLease lease2 = server.lease();
+            assertNotEquals(lease1.getAccount(), lease2.getAccount());
+            assertSame(runner, lease1.getRunner());
+            assertEquals(2, server.getLeaseCount());
+            assertTrue(lease1.getNatsLocalhostUri().startsWith("nats://" + lease1.getUser() + ":"));
+
+            String accounts = new String(Files.readAllBytes(Paths.get(server.getAccountsFile())));
+            assertTrue(accounts.contains(lease1.getAccount()));
+            assertTrue(accounts.contains(lease2.getAccount()));
+            connect(runner, lease1).close();
+
+            lease1.releaseAsync().get();
+            lease1.close(); // already released, nothing happens
+            assertEquals(1, server.getLeaseCount());
+            assertThrows(IOException.class, () -> connect(runner, lease1));
+            connect(runner, lease2).close();
+        }
+    }
+
+    @Test
+    public void testWrongPassword() throws Exception {
+        NatsServerRunner.Builder runnerBuilder = NatsServerRunner.builder().jetstream();
+        try (NatsAccountServer server = NatsAccountServer.builder()
+            .runnerBuilder(runnerBuilder)
+            .build())
+        {
+            assertNull(runnerBuilder.configInserts); // the server's inserts went to a copy
+            NatsAccountServer.AccountLease lease = server.lease();
+            assertThrows(IOException.class, () -> ProtocolClient.connect("localhost",
+                server.getRunner().getNatsPort(), lease.getUser(), "not-the-password", 1000));
+        }
+    }
+
+    private static ProtocolClient connect(NatsServerRunner runner, NatsAccountServer.AccountLease lease) throws IOException {
+        return ProtocolClient.connect("localhost", runner.getNatsPort(), lease.getUser(), lease.getPassword(), 1000);
+    }
+}
@@ -0,0 +1,123 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NatsConfTest extends TestBase {
+
+    @Test
+    public void testParse() throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(SOURCE_CONFIG_FILE_PATH + "js_complex.conf")), StandardCharsets.UTF_8);
+        NatsConf conf = NatsConf.parse(text);
+        assertEquals(text, conf.render());
+
+        NatsConf.Block root = conf.getRoot();
+        assertEquals(3, root.getEntries().size());
+        assertEquals("4222", ((NatsConf.Scalar)root.get("port").getValue()).getValue());
+        assertEquals("{max_mem_store:1GB,max_file_store:1GB}", root.get("jetstream").getValue().compact());
+
+        NatsConf.Block source = (NatsConf.Block)((NatsConf.Block)root.get("accounts").getValue()).get("SOURCE").getValue();
+        NatsConf.Array exports = (NatsConf.Array)source.get("exports").getValue();
+        assertEquals(3, exports.getValues().size());
+        NatsConf.Block export = (NatsConf.Block)exports.getValues().get(0);
+        NatsConf.Scalar service = (NatsConf.Scalar)export.get("service").getValue();
+        assertEquals("$JS.API.>", service.getValue());
+        assertTrue(service.isQuoted());
+        assertFalse(service.isVariable());
+        assertEquals("accounts", export.get("service").getTopLevel().getKey());
+
+        NatsConf.Block target = (NatsConf.Block)((NatsConf.Block)root.get("accounts").getValue()).get("TARGET").getValue();
+        NatsConf.Block imp = (NatsConf.Block)((NatsConf.Array)target.get("imports").getValue()).getValues().get(0);
+        assertEquals("tar.api.>", ((NatsConf.Scalar)imp.get("to").getValue()).getValue());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (String name : Arrays.asList("simple.conf", "tls_first.conf", "websocket.conf", "ws.conf",
+            "js_enabled.conf", "js_with_store_dir.conf", "config_port_mapped_ws_mapped.conf"))
+        {
+            String text = new String(Files.readAllBytes(Paths.get(SOURCE_CONFIG_FILE_PATH + name)), StandardCharsets.UTF_8);
+            assertEquals(text, NatsConf.parse(text).render(), name);
+        }
+    }
+
+    @Test
+    public void testSyntax() {
+        NatsConf conf = NatsConf.parse(
+            "include \"accounts.conf\" # the accounts\n" +
+            "NAME = 'hub'\n" +
+            "server_name $NAME; http_port: 8222\n" +
+            "leafnodes { remotes = [ {url: \"nats://a:7422\", account: A} ] } // inline\n" +
+            "description: \"port: 4222 # not a comment\"\n" +
+            "cluster: {\n" +
+            "  listen: 127.0.0.1:6222\n" +
+            "  routes: [\n" +
+            "    nats://127.0.0.1:6223 // a route\n" +
+            "  ]\n" +
+            "}");
+        List<NatsConf.Node> nodes = conf.getRoot().getNodes();
+        assertEquals(7, nodes.size());
+        assertEquals("accounts.conf", ((NatsConf.Include)nodes.get(0)).getPath());
+        assertEquals("hub", ((NatsConf.Scalar)conf.getRoot().get("name").getValue()).getValue());
+        assertEquals("NAME", ((NatsConf.Scalar)conf.getRoot().get("server_name").getValue()).getVariable());
+        assertEquals("port: 4222 # not a comment", ((NatsConf.Scalar)conf.getRoot().get("description").getValue()).getValue());
+        assertEquals("127.0.0.1:6222", ((NatsConf.Scalar)((NatsConf.Block)conf.getRoot().get("cluster").getValue()).get("listen").getValue()).getValue());
+        assertEquals("[nats://127.0.0.1:6223]", ((NatsConf.Block)conf.getRoot().get("cluster").getValue()).get("routes").getValue().compact());
+        assertTrue(conf.findAll("port").isEmpty());
+        assertEquals(" = ", conf.getRoot().get("NAME").getSeparator());
+    }
+
+    @Test
+    public void testReplace() {
+        NatsConf conf = NatsConf.parse(Arrays.asList(
+            "port: 4222 # client",
+            "websocket { port: <ws>, no_tls: true }",
+            "jetstream: enabled"));
+        List<NatsConf.Entry> ports = conf.findAll("port");
+        assertEquals(2, ports.size());
+        assertNull(ports.get(0).getParent());
+        assertEquals("websocket", ports.get(1).getParent().getKey());
+
+        ports.get(0).replace("port: 1");
+        ports.get(1).getValue().replace("2");
+        conf.getRoot().get("jetstream").replace("jetstream {\n}");
+        assertEquals(Arrays.asList(
+            "port: 1 # client",
+            "websocket { port: 2, no_tls: true }",
+            "jetstream {",
+            "}"), conf.renderLines());
+    }
+
+    @Test
+    public void testErrors() {
+        assertThrows(IllegalArgumentException.class, () -> NatsConf.parse("bad"));
+        assertThrows(IllegalArgumentException.class, () -> NatsConf.parse("a {"));
+        assertThrows(IllegalArgumentException.class, () -> NatsConf.parse("a: [1, 2"));
+        assertThrows(IllegalArgumentException.class, () -> NatsConf.parse("a: \"b"));
+        assertThrows(IllegalArgumentException.class, () -> NatsConf.parse("a: b }"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> NatsConf.parse("a: 1\nb {\n"));
+        assertTrue(e.getMessage().contains("line 3"));
+        assertEquals("", ((NatsConf.Scalar)NatsConf.parse("a=").getRoot().get("a").getValue()).getValue());
+    }
+}
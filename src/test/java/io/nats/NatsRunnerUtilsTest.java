@@ -14,10 +14,20 @@
 package io.nats;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.nats.NatsRunnerUtils.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+@Isolated // changes the manual start port
 public class NatsRunnerUtilsTest extends TestBase {
     @Test
     public void testGetNatsLocalhostUri() {
@@ -45,4 +55,56 @@ public class NatsRunnerUtilsTest extends TestBase {
     public void testGetResolvedServerPath() {
         assertEquals(DEFAULT_NATS_SERVER, getResolvedServerPath());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testManualPorts() throws Exception {
+        try (ServerSocket taken = new ServerSocket(0)) {
+            int start = taken.getLocalPort() - 1;
+            setManualStartPort(start);
+            int first = nextPort();
+            assertTrue(first == start || first == start + 2);
+            if (first == start) {
+                assertEquals(start + 2, nextPort()); // start + 1 is in use
+            }
+
+            for (int blockSize : new int[] {1, 10}) {
+                setManualPortBlockSize(blockSize);
+                setManualStartPort(start + 10);
+                Set<Integer> ports = ConcurrentHashMap.newKeySet();
+                AtomicInteger duplicates = new AtomicInteger();
+                CountDownLatch go = new CountDownLatch(1);
+                List<Thread> threads = new ArrayList<>();
+                for (int t = 0; t < 100; t++) {
+                    Thread thread = new Thread(() -> {
+                        try {
+                            go.await();
+                            for (int x = 0; x < 5; x++) {
+                                if (!ports.add(nextPort())) {
+                                    duplicates.incrementAndGet();
+                                }
+                            }
+                        }
+                        catch (Exception e) {
+                            duplicates.incrementAndGet();
+                        }
+                    });
+                    threads.add(thread);
+                    thread.start();
+                }
+                go.countDown();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                assertEquals(0, duplicates.get());
+                assertEquals(500, ports.size());
+                for (Integer port : ports) {
+                    assertTrue(port >= start + 10);
+                }
+            }
+        }
+        finally {
+            setManualPortBlockSize(1);
+            setManualStartPort(null);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Isolated
+public class NatsServerCacheTest extends TestBase {
+
+    @Test
+    public void testSpec() {
+        NatsServerCache.Spec spec = NatsServerCache.Spec.of(NatsServerRunner.builder()
+            .jetstream()
+            .configInserts(Arrays.asList("  max_payload: 1024", ""))
+            .buildOptions());
+        assertEquals(spec, NatsServerCache.Spec.of(NatsServerRunner.builder()
+            .jetstream()
+            .configInserts(Arrays.asList("max_payload: 1024"))
+            .outputLevel(java.util.logging.Level.SEVERE) // output is not part of the spec
+            .buildOptions()));
+        assertEquals(spec.hashCode(), NatsServerCache.Spec.of(NatsServerRunner.builder()
+            .jetstream()
+            .configInserts(Arrays.asList("max_payload: 1024"))
+            .buildOptions()).hashCode());
+        assertNotEquals(spec, NatsServerCache.Spec.of(NatsServerRunner.builder()
+            .configInserts(Arrays.asList("max_payload: 1024"))
+            .buildOptions()));
+        assertNotEquals(spec, NatsServerCache.Spec.of(NatsServerRunner.builder()
+            .jetstream()
+            .configInserts(Arrays.asList("max_payload: 2048"))
+            .buildOptions()));
+        assertNotEquals(spec, NatsServerCache.Spec.of(NatsServerRunner.builder()
+            .jetstream()
+            .configInserts(Arrays.asList("max_payload: 1024"))
+            .debugLevel(DebugLevel.DEBUG_TRACE)
+            .buildOptions()));
+
+        // settings that options can't express are part of the builder's spec
+        NatsServerRunner.Builder builder = NatsServerRunner.builder().jetstream().port(4222);
+        NatsServerCache.Spec builderSpec = NatsServerCache.Spec.of(builder);
+        assertEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().outputLevel(java.util.logging.Level.SEVERE)));
+        assertNotEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().jsProfile(JsProfile.FAST)));
+        assertNotEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().jsConfig(JsConfig.builder().maxMemoryStore(1024))));
+        assertNotEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().jsStoreLocation(JsStoreLocation.RAM)));
+        assertNotEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().port("ws", 8080)));
+        assertNotEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().randomPorts()));
+        assertNotEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().connectValidateProtocol()));
+        assertNotEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().processStartTries(5)));
+        assertNotEquals(builderSpec, NatsServerCache.Spec.of(builder.copy().customName("other")));
+    }
+
+    @Test
+    public void testSharedAndReferenceCounted() throws Exception {
+        NatsServerCache cache = new NatsServerCache();
+        NatsServerCache.Handle h1 = cache.acquire(NatsServerRunner.builder().jetstream());
+        NatsServerCache.Handle h2 = cache.acquire(NatsServerRunner.builder().jetstream());
+        NatsServerCache.Handle other = cache.acquire(NatsServerRunner.builder());
+        assertSame(h1.getRunner(), h2.getRunner());
+        assertNotSame(h1.getRunner(), other.getRunner());
+        assertEquals(2, cache.size());
+
+        int port = h1.getRunner().getNatsPort();
+        h1.close();
+        h1.close(); // only counts once
+        validateConnection(h2.getRunner());
+        h2.close();
+        assertEquals(1, cache.size());
+        waitUntilUnreachable(port);
+
+        cache.shutdownAsync().get();
+        assertEquals(0, cache.size());
+        waitUntilUnreachable(other.getRunner().getNatsPort());
+    }
+
+    @Test
+    public void testLinger() throws Exception {
+        NatsServerCache cache = new NatsServerCache(500);
+        NatsServerRunner runner;
+        try (NatsServerCache.Handle h = cache.acquire(NatsServerRunner.builder())) {
+            runner = h.getRunner();
+        }
+        try (NatsServerCache.Handle h = cache.acquire(NatsServerRunner.builder())) {
+            assertSame(runner, h.getRunner()); // picked up while lingering
+        }
+        assertEquals(1, cache.size());
+        long end = System.currentTimeMillis() + 5000;
+        while (cache.size() > 0) {
+            assertTrue(System.currentTimeMillis() < end);
+            //noinspection BusyWait
+            Thread.sleep(50);
+        }
+    }
+
+    private static void waitUntilUnreachable(int port) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                NatsServerRunner.isServerReachable(port, 100);
+            }
+            catch (Exception e) {
+                return;
+            }
+            assertTrue(System.currentTimeMillis() < end);
+            //noinspection BusyWait
+            Thread.sleep(50);
+        }
+    }
+}
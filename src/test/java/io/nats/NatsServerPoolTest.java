@@ -0,0 +1,87 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Isolated
+public class NatsServerPoolTest extends TestBase {
+
+    @Test
+    public void testLeaseAndRelease() throws Exception {
+        try (NatsServerPool pool = NatsServerPool.builder().size(2).build()) {
+            waitFor(() -> pool.getIdleCount() == 2);
+
+            NatsServerRunner runner = pool.lease();
+            assertEquals(1, pool.getLeasedCount());
+            validateConnection(runner);
+            waitFor(() -> pool.getIdleCount() == 2); // replaced in the background
+
+            pool.release(runner);
+            assertEquals(0, pool.getLeasedCount());
+            assertThrows(Exception.class, () -> NatsServerRunner.isServerReachable(runner.getNatsPort(), 200));
+            pool.release(runner); // not leased, nothing happens
+        }
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        try (NatsServerPool pool = NatsServerPool.builder().size(0).maxSize(1).build()) {
+            assertEquals(0, pool.getIdleCount());
+            NatsServerRunner runner = pool.lease(); // started on demand
+            validateConnection(runner);
+            assertThrows(IllegalStateException.class, () -> pool.lease(200));
+            pool.release(runner);
+            NatsServerRunner second = pool.lease();
+            assertNotSame(runner, second);
+            validateConnection(second);
+        }
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        try (NatsServerPool pool = NatsServerPool.builder().size(1).idleTimeout(200).build()) {
+            waitFor(() -> pool.getIdleCount() == 1);
+            Thread.sleep(600);
+            assertEquals(1, pool.getIdleCount()); // the pool size is never evicted
+            validateConnection(pool.lease());
+        }
+    }
+
+    @Test
+    public void testStartFailureAndClose() throws Exception {
+        NatsServerPool pool = NatsServerPool.builder()
+            .size(0)
+            .runnerBuilder(() -> NatsServerRunner.builder().executablePath("/not/a/real/path/nats-server"))
+            .build();
+        NatsServerStartupException e = assertThrows(NatsServerStartupException.class, pool::lease);
+        assertEquals(StartupFailure.BINARY_NOT_FOUND, e.getFailure());
+        pool.close();
+        assertThrows(IllegalStateException.class, pool::lease);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < end);
+            //noinspection BusyWait
+            Thread.sleep(20);
+        }
+    }
+}
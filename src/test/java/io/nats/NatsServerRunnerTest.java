@@ -16,10 +16,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Isolated;
 
 import java.io.IOException;
+import java.net.ServerSocket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -276,6 +280,61 @@ public class NatsServerRunnerTest extends TestBase {
         validateNotConnected(runner);
     }
 
+    @Test
+    public void testConnectValidateProtocol() throws Exception {
+        try (NatsServerRunner runner = builder().connectValidateProtocol().build()) {
+            validateBasics(runner, false, false, true);
+            NatsServerRunner.isServerReady(runner.getNatsPort(), 500);
+        }
+
+        // auth required, the -ERR is still a protocol response
+        try (NatsServerRunner runner = builder().connectValidateProtocol().customArgs(CUSTOMS_ARGS).build()) {
+            NatsServerRunner.isServerReady(runner.getNatsPort(), 500);
+        }
+
+        NatsServerRunner runner = builder().connectValidateProtocol(true).doNotStart().build();
+        assertThrows(IOException.class, () -> NatsServerRunner.isServerReady(runner.getNatsPort(), 200));
+    }
+
+    @Test
+    public void testStartAsyncShutdownAsync() throws Exception {
+        List<NatsServerRunner> runners = new ArrayList<>();
+        List<CompletableFuture<NatsServerRunner>> starts = new ArrayList<>();
+        for (int x = 0; x < 3; x++) {
+            NatsServerRunner runner = builder().doNotStart().build();
+            runners.add(runner);
+            starts.add(runner.startAsync());
+        }
+        for (CompletableFuture<NatsServerRunner> f : starts) {
+            validateConnection(f.get(5, TimeUnit.SECONDS));
+        }
+
+        // starting again while running just completes
+        assertSame(runners.get(0), runners.get(0).startAsync().get(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<Void>> shutdowns = new ArrayList<>();
+        for (NatsServerRunner runner : runners) {
+            shutdowns.add(runner.shutdownAsync());
+        }
+        CompletableFuture.allOf(shutdowns.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        for (NatsServerRunner runner : runners) {
+            validateNotConnected(runner);
+            assertTrue(runner.shutdownAsync().isDone());
+        }
+    }
+
+    @Test
+    public void testStartAsyncFailure() throws Exception {
+        CompletableFuture<NatsServerRunner> f = builder()
+            .configFilePath(SOURCE_CONFIG_FILE_PATH + "bad.conf")
+            .doNotStart()
+            .build()
+            .startAsync();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(NatsServerStartupException.class, e.getCause());
+        assertEquals(StartupFailure.CONFIG_ERROR, ((NatsServerStartupException)e.getCause()).getFailure());
+    }
+
     private static final String[] CUSTOMS_CONFIG_INSERTS = { "# custom insert this comment" };
     private static final String[] CUSTOMS_ARGS = { "--user", "uuu", "--pass", "ppp" };
 
@@ -593,9 +652,97 @@ public class NatsServerRunnerTest extends TestBase {
         }
         catch (Exception e) {
             assertTrue(e.getMessage().contains("nats-server: Parse error on line 2"));
+            assertInstanceOf(NatsServerStartupException.class, e);
+            assertEquals(StartupFailure.CONFIG_ERROR, ((NatsServerStartupException)e).getFailure());
         }
     }
 
+    @Test
+    public void testPortInUse() throws Exception {
+        try (NatsServerRunner runner = builder().build()) {
+            NatsServerStartupException e = assertThrows(NatsServerStartupException.class,
+                () -> builder().port(runner.getPort()).build());
+            assertEquals(StartupFailure.PORT_IN_USE, e.getFailure());
+        }
+    }
+
+    @Test
+    public void testParseListenPorts() {
+        Map<String, Integer> ports = NatsServerRunner.parseListenPorts(Arrays.asList(
+            "[1] [INF] Starting nats-server",
+            "[1] [INF] Starting http monitor on 0.0.0.0:41234",
+            "[1] [INF] Listening for websocket clients on ws://0.0.0.0:41235",
+            "[1] [INF] Listening for client connections on 127.0.0.1:41236",
+            "[1] [INF] Listening for route connections on [::]:41237",
+            "[1] [INF] Server is ready"));
+        assertEquals(4, ports.size());
+        assertEquals(41234, ports.get("http"));
+        assertEquals(41235, ports.get("websocket"));
+        assertEquals(41236, ports.get(NatsServerRunner.CLIENT_LISTENER));
+        assertEquals(41237, ports.get("cluster"));
+    }
+
+    @Test
+    public void testRandomPorts() throws Exception {
+        try (NatsServerRunner runner = builder().randomPorts().doNotStart().build()) {
+            assertEquals(-1, runner.getPort());
+            assertTrue(runner.getConfigLines().contains("port: -1"));
+            runner.start();
+            assertTrue(runner.getPort() > 0);
+            assertEquals(runner.getPort(), runner.getNatsPort());
+            validateHostAndPort(runner);
+            validateConnection(runner);
+        }
+
+        try (NatsServerRunner runner = builder()
+            .randomPorts()
+            .configFilePath(SOURCE_CONFIG_FILE_PATH + "config_port_mapped_ws_mapped.conf")
+            .build())
+        {
+            assertTrue(runner.getNatsPort() > 0);
+            assertTrue(runner.getPort("ws") > 0);
+            assertNotEquals(runner.getNatsPort(), (int)runner.getPort("ws"));
+            assertEquals(runner.getPort("ws"), runner.getNonNatsPort());
+            validateConnection(runner);
+        }
+    }
+
+    @Test
+    public void testPortInUseRetry() throws Exception {
+        try (NatsServerRunner runner = builder().doNotStart().build()) {
+            int stolen = runner.getPort();
+            try (ServerSocket ignored = new ServerSocket(stolen)) {
+                runner.start();
+            }
+            assertNotEquals(stolen, runner.getPort());
+            assertTrue(runner.getConfigLines().contains(PORT_PROPERTY + runner.getPort()));
+            validateConnection(runner);
+        }
+
+        try (NatsServerRunner runner = builder().doNotStart().build()) {
+            int stolen = runner.getPort();
+            try (ServerSocket ignored = new ServerSocket(stolen)) {
+                runner.startAsync().get();
+            }
+            assertNotEquals(stolen, runner.getPort());
+            validateConnection(runner);
+        }
+
+        try (NatsServerRunner runner = builder().processStartTries(1).doNotStart().build()) {
+            try (ServerSocket ignored = new ServerSocket(runner.getPort())) {
+                NatsServerStartupException e = assertThrows(NatsServerStartupException.class, runner::start);
+                assertEquals(StartupFailure.PORT_IN_USE, e.getFailure());
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryNotFound() {
+        NatsServerStartupException e = assertThrows(NatsServerStartupException.class,
+            () -> builder().executablePath("/not/a/real/path/nats-server").build());
+        assertEquals(StartupFailure.BINARY_NOT_FOUND, e.getFailure());
+    }
+
     @Test
     public void testBuilderPortOverrides() throws Exception {
         String[] configInserts = new String[] {"port:9999"};
@@ -709,4 +856,47 @@ public class NatsServerRunnerTest extends TestBase {
             validateJsStorage(runner);
         }
     }
+
+    @Test
+    public void testJsProfile() throws Exception {
+        try (NatsServerRunner runner = builder()
+            .configFilePath("src/test/resources/js_with_store_dir.conf")
+            .jsConfig(JsConfig.builder().domain("test"))
+            .jsProfile(JsProfile.DURABLE)
+            .build())
+        {
+            validateJsStorage(runner);
+            assertEquals("\"test\"", runner.getJsConfig().options.get(JsConfig.DOMAIN));
+            assertTrue(runner.getConfigLines().contains(JsConfig.INDENT + "sync_interval: always,"));
+            validateConnection(runner);
+        }
+    }
+
+    @Test
+    public void testResetJetStream() throws Exception {
+        try (NatsServerRunner runner = builder().jetstream().build()) {
+            try (ProtocolClient client = ProtocolClient.connect("localhost", runner.getNatsPort(), null, null, 5000)) {
+                client.request("$JS.API.STREAM.CREATE.plain", "{\"name\":\"plain\",\"subjects\":[\"plain\"]}");
+                client.request("$JS.API.STREAM.CREATE.KV_bucket", "{\"name\":\"KV_bucket\",\"subjects\":[\"$KV.bucket.>\"]}");
+                assertTrue(client.request("$JS.API.STREAM.NAMES", "").contains("KV_bucket"));
+            }
+
+            runner.resetJetStream();
+            try (ProtocolClient client = ProtocolClient.connect("localhost", runner.getNatsPort(), null, null, 5000)) {
+                assertEquals(0, Json.getLong(Json.parseObject(client.request("$JS.API.STREAM.NAMES", "")), "total", -1));
+            }
+
+            // not running, the store is just emptied
+            runner.shutdown();
+            Path leftOver = runner.getJsConfig().storeDirPath.resolve("left_over");
+            Files.createDirectories(leftOver);
+            runner.resetJetStream();
+            assertFalse(Files.exists(leftOver));
+            assertTrue(Files.exists(runner.getJsConfig().storeDirPath));
+        }
+
+        try (NatsServerRunner runner = builder().build()) {
+            assertThrows(IllegalStateException.class, runner::resetJetStream);
+        }
+    }
 }
@@ -0,0 +1,85 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutputLoggerTest extends TestBase {
+
+    @Test
+    public void testReadyLineReleasesWait() {
+        String out = "[1] [INF] Starting nats-server\n"
+            + "[1] [INF] Listening for client connections on 0.0.0.0:4222\n"
+            + "[1] [INF] Server is ready\n";
+        OutputLogger nol = OutputLogger.logOutput(new OutputThreadProvider() {}, new ConsoleOutput(), new TestProcess(out), "test");
+        assertTrue(nol.waitForReady(5000));
+        assertTrue(nol.isReady());
+        assertEquals(3, nol.getStartupLines().size());
+    }
+
+    @Test
+    public void testOutputEndReleasesWait() {
+        String out = "[1] [FTL] Error listening on port: 0.0.0.0:4222, \"address already in use\"\n";
+        OutputLogger nol = OutputLogger.logOutput(new OutputThreadProvider() {}, new ConsoleOutput(), new TestProcess(out), "test");
+        long start = System.currentTimeMillis();
+        assertFalse(nol.waitForReady(5000));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertFalse(nol.isReady());
+    }
+
+    static class TestProcess extends Process {
+        private final InputStream in;
+
+        TestProcess(String output) {
+            in = new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -0,0 +1,146 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Isolated
+public class PortLeaseUtilsTest extends TestBase {
+
+    @Test
+    public void testLeaseAndRelease() throws Exception {
+        Path leaseFile = Files.createTempFile("port_leases", null);
+        PortLeaseUtils.setLeaseFile(leaseFile);
+        try {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int x = 0; x < 50; x++) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return PortLeaseUtils.lease();
+                    }
+                    catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            Set<Integer> ports = new HashSet<>();
+            for (CompletableFuture<Integer> f : futures) {
+                assertTrue(ports.add(f.get()));
+            }
+            for (Integer port : ports) {
+                assertTrue(PortLeaseUtils.isLeased(port));
+                PortLeaseUtils.release(port);
+                assertFalse(PortLeaseUtils.isLeased(port));
+            }
+            assertEquals(0, Files.size(leaseFile));
+        }
+        finally {
+            PortLeaseUtils.setLeaseFile(null);
+            Files.deleteIfExists(leaseFile);
+        }
+    }
+
+    @Test
+    public void testReleaseHeld() throws Exception {
+        Path leaseFile = Files.createTempFile("port_leases", null);
+        long expires = System.currentTimeMillis() + 60_000;
+        Files.write(leaseFile, ("4222 " + expires + "\n").getBytes()); // another JVM's lease
+        PortLeaseUtils.setLeaseFile(leaseFile);
+        try {
+            int p1 = PortLeaseUtils.lease();
+            int p2 = PortLeaseUtils.lease();
+            PortLeaseUtils.releaseHeld(Arrays.asList(p1, 4222));
+            assertFalse(PortLeaseUtils.isLeased(p1));
+            assertTrue(PortLeaseUtils.isLeased(p2));
+            assertTrue(PortLeaseUtils.isLeased(4222)); // not this JVM's to release
+
+            // nothing held, the table is not even read
+            Files.write(leaseFile, "not a lease table".getBytes());
+            PortLeaseUtils.releaseHeld(Arrays.asList(p1, 4222));
+            assertEquals("not a lease table", new String(Files.readAllBytes(leaseFile)));
+            PortLeaseUtils.releaseHeld(Collections.singletonList(p2));
+        }
+        finally {
+            PortLeaseUtils.setLeaseFile(null);
+            Files.deleteIfExists(leaseFile);
+        }
+    }
+
+    @Test
+    public void testExpiredLeasesIgnored() throws Exception {
+        Path leaseFile = Files.createTempFile("port_leases", null);
+        Files.write(leaseFile, "4222 1\ngarbage\n4223 x\n".getBytes());
+        PortLeaseUtils.setLeaseFile(leaseFile);
+        try {
+            assertFalse(PortLeaseUtils.isLeased(4222));
+            assertFalse(PortLeaseUtils.isLeased(4223));
+        }
+        finally {
+            PortLeaseUtils.setLeaseFile(null);
+            Files.deleteIfExists(leaseFile);
+        }
+    }
+
+    @Test
+    public void testWorkerRanges() throws Exception {
+        Path leaseFile = Files.createTempFile("port_leases", null);
+        PortLeaseUtils.setLeaseFile(leaseFile);
+        String previous = System.getProperty(PortLeaseUtils.GRADLE_WORKER_PROPERTY);
+        try {
+            assertEquals(-1, PortLeaseUtils.getWorkerRangeStart());
+
+            PortLeaseUtils.setWorkerRanges(30000, 100);
+            System.setProperty(PortLeaseUtils.GRADLE_WORKER_PROPERTY, "3");
+            assertEquals(30300, PortLeaseUtils.getWorkerRangeStart());
+
+            Set<Integer> ports = new HashSet<>();
+            for (int x = 0; x < 10; x++) {
+                int port = PortLeaseUtils.lease();
+                assertTrue(port >= 30300 && port < 30400);
+                assertTrue(ports.add(port));
+            }
+            for (Integer port : ports) {
+                PortLeaseUtils.release(port);
+            }
+
+            // more workers than ranges wrap around
+            System.setProperty(PortLeaseUtils.GRADLE_WORKER_PROPERTY, "" + (3 + (NatsRunnerUtils.MAX_PORT - 30000 + 1) / 100));
+            assertEquals(30300, PortLeaseUtils.getWorkerRangeStart());
+        }
+        finally {
+            if (previous == null) {
+                System.clearProperty(PortLeaseUtils.GRADLE_WORKER_PROPERTY);
+            }
+            else {
+                System.setProperty(PortLeaseUtils.GRADLE_WORKER_PROPERTY, previous);
+            }
+            PortLeaseUtils.setWorkerRanges(-1, -1);
+            PortLeaseUtils.setLeaseFile(null);
+            Files.deleteIfExists(leaseFile);
+        }
+    }
+}
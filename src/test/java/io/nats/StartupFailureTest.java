@@ -0,0 +1,59 @@
+// Copyright 2025 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.nats.StartupFailure.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartupFailureTest extends TestBase {
+
+    @Test
+    public void testFromOutput() {
+        List<String> portInUse = Arrays.asList(
+            "[1] [INF] Starting nats-server",
+            "[1] [INF] Using configuration file: /tmp/nats_java_test123.conf",
+            "[1] [FTL] Error listening on port: 0.0.0.0:4222, \"listen tcp 0.0.0.0:4222: bind: address already in use\"");
+        assertEquals(PORT_IN_USE, fromOutput(portInUse));
+        assertEquals(portInUse.get(2), findCauseLine(portInUse));
+
+        assertEquals(CONFIG_ERROR, fromOutput(Collections.singletonList(
+            "nats-server: Parse error on line 2: 'Expected a top-level value to end with a new line, comment or EOF, but got EOF instead.'")));
+
+        assertEquals(TLS_ERROR, fromOutput(Collections.singletonList(
+            "nats-server: /tmp/x.conf:6:3: error parsing X509 certificate/key pair: open certs/server.pem: no such file or directory")));
+
+        List<String> unrecognized = Arrays.asList(
+            "[1] [INF] Using configuration file: /tmp/nats_java_test123.conf",
+            "[1] [FTL] Something unexpected");
+        assertEquals(PROCESS_EXITED, fromOutput(unrecognized));
+        assertEquals(unrecognized.get(1), findCauseLine(unrecognized));
+
+        assertEquals(PROCESS_EXITED, fromOutput(Collections.emptyList()));
+        assertNull(findCauseLine(Collections.emptyList()));
+    }
+
+    @Test
+    public void testFromProcessStart() {
+        assertEquals(BINARY_NOT_FOUND, fromProcessStart(new IOException("Cannot run program \"nats-server\": error=2, No such file or directory")));
+        assertEquals(UNKNOWN, fromProcessStart(new IOException("Cannot run program \"nats-server\": error=13, Permission denied")));
+        assertEquals(UNKNOWN, fromProcessStart(new IOException()));
+    }
+}